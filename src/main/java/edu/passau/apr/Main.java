@@ -3,6 +3,8 @@ package edu.passau.apr;
 import edu.passau.apr.algorithm.GeneticAlgorithm;
 import edu.passau.apr.config.Config;
 import edu.passau.apr.evaluator.FitnessEvaluator;
+import edu.passau.apr.evaluator.FitnessStore;
+import edu.passau.apr.localization.SpectrumFaultLocalizer;
 import edu.passau.apr.model.BenchmarkConfig;
 import edu.passau.apr.model.FitnessResult;
 import edu.passau.apr.model.Patch;
@@ -15,6 +17,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
 import java.util.Random;
 
 /**
@@ -40,32 +43,54 @@ public class Main {
             System.out.println("Population Size: " + config.getPopulationSize());
             System.out.println("Max Generations: " + config.getMaxGenerations());
             System.out.println("Time Limit: " + config.getTimeLimitSec() + " seconds");
+            if (config.isMutantSchemata() && Config.TEST_BACKEND_FORKED.equals(config.getTestBackend())) {
+                System.out.println("Mutant schemata: off with --testBackend forked; schemata need the in-process backend");
+            }
+            if (config.isRunawayGuard() && Config.TEST_BACKEND_FORKED.equals(config.getTestBackend())) {
+                System.out.println("Runaway guard: off with --testBackend forked; workers left with candidate threads"
+                    + " are replaced instead (see the forked worker recycle count)");
+            }
             System.out.println();
 
             var random = new Random(config.getSeed());
 
             var benchmarkConfig = BenchmarkLoader.loadConfig(config.getBenchmarkPath());
-            var weights = BenchmarkLoader.loadFaultLocalization(benchmarkConfig.getFaultLocalizationPath());
-
-            var buggySourcePath = Paths.get(benchmarkConfig.getBuggySourcePath());
-            var buggySource = Files.readString(buggySourcePath);
-            var patchGenerator = new PatchGenerator(buggySource, weights, config.getMutationWeight(), random);
 
             var fitnessEvaluator = new FitnessEvaluator(
                 benchmarkConfig.getBuggySourcePath(),
                 benchmarkConfig.getFixedSourcePath(),
                 benchmarkConfig.getTestSourcePath(),
                 benchmarkConfig.getTestClassNames(),
-                config.getPositiveTestWeight(),
-                config.getNegativeTestWeight(),
-                benchmarkConfig.getMainClassName()
+                benchmarkConfig.getMainClassName(),
+                config
             );
 
+            if (config.isVerbose() && !fitnessEvaluator.getBaselineOutput().isEmpty()) {
+                System.out.println("Baseline test output:");
+                System.out.println(fitnessEvaluator.getBaselineOutput());
+            }
+            if (fitnessEvaluator.getTimeoutSummary() != null) {
+                System.out.println(fitnessEvaluator.getTimeoutSummary());
+            }
+
+            if (config.getFitnessStorePath() != null) {
+                fitnessEvaluator.setFitnessStore(FitnessStore.open(
+                    Paths.get(config.getFitnessStorePath()),
+                    FitnessStore.benchmarkKey(benchmarkConfig, config)
+                ));
+            }
+
             if (config.getRunTestsTarget() != null) {
                 runTestsOnly(config, benchmarkConfig, fitnessEvaluator);
                 return;
             }
 
+            var buggySourcePath = Paths.get(benchmarkConfig.getBuggySourcePath());
+            var buggySource = Files.readString(buggySourcePath);
+            var weights = loadFaultLocalization(config, benchmarkConfig, fitnessEvaluator, buggySource);
+            var patchGenerator = new PatchGenerator(buggySource, weights, config.getMutationWeight(), random,
+                config.isNegativeEditCache());
+
             var ga = new GeneticAlgorithm(
                 config.getPopulationSize(),
                 config.getMaxGenerations(),
@@ -83,6 +108,42 @@ public class Main {
             System.out.println("=== Results ===");
             System.out.println("Generations: " + result.generations());
             System.out.println("Time: " + (result.elapsedTimeMs() / 1000.0) + " seconds");
+            if (fitnessEvaluator.getFitnessCache() != null) {
+                System.out.println(fitnessEvaluator.getFitnessCache());
+            }
+            if (fitnessEvaluator.getFitnessStore() != null) {
+                System.out.println(fitnessEvaluator.getFitnessStore());
+            }
+            if (fitnessEvaluator.getForkedTestBackend() != null) {
+                System.out.println(fitnessEvaluator.getForkedTestBackend());
+            }
+            if (fitnessEvaluator.getOperatorFastPath() != null) {
+                System.out.println(fitnessEvaluator.getOperatorFastPath());
+            }
+            if (fitnessEvaluator.getCoverageMap() != null) {
+                System.out.println(fitnessEvaluator.getCoverageMap());
+            }
+            if (fitnessEvaluator.getMutantSchemata() != null) {
+                System.out.println(fitnessEvaluator.getMutantSchemata());
+            }
+            if (fitnessEvaluator.getTypeFilter() != null) {
+                System.out.println(fitnessEvaluator.getTypeFilter());
+            }
+            if (fitnessEvaluator.getProgramNormalizer() != null) {
+                System.out.println(fitnessEvaluator.getProgramNormalizer());
+            }
+            if (fitnessEvaluator.getEvaluationPipeline() != null) {
+                System.out.println(fitnessEvaluator.getEvaluationPipeline());
+            }
+            if (patchGenerator.getNegativeEditCache() != null) {
+                System.out.println(patchGenerator.getNegativeEditCache());
+            }
+            if (fitnessEvaluator.getRunawayGuard() != null) {
+                System.out.println(fitnessEvaluator.getRunawayGuard());
+            }
+            if (fitnessEvaluator.getLoaderMonitor() != null) {
+                System.out.println(fitnessEvaluator.getLoaderMonitor());
+            }
             
             if (result.foundSolution()) {
                 System.out.println("SUCCESS: Found a patch that passes all tests!");
@@ -113,6 +174,30 @@ public class Main {
         }
     }
 
+    /**
+     * Reads the suspiciousness weights from the benchmark's file, or computes them from the test
+     * coverage the evaluator collected on the buggy program. Falls back to the file when no coverage
+     * could be collected.
+     */
+    private static Map<Integer, Double> loadFaultLocalization(Config config, BenchmarkConfig benchmarkConfig,
+                                                              FitnessEvaluator fitnessEvaluator, String buggySource)
+        throws IOException {
+        if (!Config.FAULT_LOCALIZATION_FILE.equals(config.getFaultLocalization())) {
+            if (fitnessEvaluator.getStatementCoverage() != null && !fitnessEvaluator.getNegativeTestIds().isEmpty()) {
+                var localizer = new SpectrumFaultLocalizer(config.getFaultLocalization(), config.getFaultLocalizationTopK());
+                var weights = localizer.localize(buggySource, fitnessEvaluator.getStatementCoverage(),
+                    fitnessEvaluator.getNegativeTestIds());
+                long targeted = weights.values().stream().filter(weight -> weight > 0.0).count();
+                System.out.println("Fault localization: " + config.getFaultLocalization() + ", "
+                    + targeted + " suspicious lines");
+                return weights;
+            }
+            System.err.println("Warning: No test coverage for " + config.getFaultLocalization()
+                + ", using " + benchmarkConfig.getFaultLocalizationPath());
+        }
+        return BenchmarkLoader.loadFaultLocalization(benchmarkConfig.getFaultLocalizationPath());
+    }
+
     private static void runTestsOnly(Config config, BenchmarkConfig benchmarkConfig, FitnessEvaluator fitnessEvaluator)
         throws IOException {
         String target = config.getRunTestsTarget().trim().toLowerCase();
@@ -202,15 +287,164 @@ public class Main {
                         throw new IllegalArgumentException("--runTests requires an argument: buggy|fixed");
                     }
                     break;
+                case "--compileMode":
+                    if (i + 1 < args.length) {
+                        config.setCompileMode(parseCompileMode(args[++i]));
+                    } else {
+                        throw new IllegalArgumentException("--compileMode requires an argument: memory|disk|batch");
+                    }
+                    break;
+                case "--threads":
+                    if (i + 1 < args.length) {
+                        config.setThreads(Integer.parseInt(args[++i]));
+                    }
+                    break;
+                case "--cacheSize":
+                    if (i + 1 < args.length) {
+                        config.setFitnessCacheSize(Integer.parseInt(args[++i]));
+                    }
+                    break;
+                case "--fitnessStore":
+                    if (i + 1 < args.length) {
+                        config.setFitnessStorePath(args[++i]);
+                    }
+                    break;
+                case "--testBackend":
+                    if (i + 1 < args.length) {
+                        config.setTestBackend(parseTestBackend(args[++i]));
+                    } else {
+                        throw new IllegalArgumentException("--testBackend requires an argument: inprocess|forked");
+                    }
+                    break;
+                case "--forkedWorkers":
+                    if (i + 1 < args.length) {
+                        config.setForkedWorkers(Integer.parseInt(args[++i]));
+                    }
+                    break;
+                case "--stagedEvaluation":
+                    if (i + 1 < args.length) {
+                        config.setStagedEvaluation(parseOption("--stagedEvaluation", args[++i], Config.STAGED_EVALUATION_OFF,
+                            Config.STAGED_EVALUATION_NEGATIVES_FIRST, Config.STAGED_EVALUATION_SHORT_CIRCUIT));
+                    } else {
+                        throw new IllegalArgumentException("--stagedEvaluation requires an argument: off|negativesFirst|shortCircuit");
+                    }
+                    break;
+                case "--abortBelow":
+                    if (i + 1 < args.length) {
+                        config.setAbortBelow(parseOption("--abortBelow", args[++i], Config.ABORT_BELOW_OFF,
+                            Config.ABORT_BELOW_WORST_ELITE, Config.ABORT_BELOW_TOURNAMENT));
+                    } else {
+                        throw new IllegalArgumentException("--abortBelow requires an argument: off|worstElite|tournament");
+                    }
+                    break;
+                case "--sampleSize":
+                    if (i + 1 < args.length) {
+                        config.setTestSampleSize(Integer.parseInt(args[++i]));
+                    }
+                    break;
+                case "--operatorFastPath":
+                    config.setOperatorFastPath(true);
+                    break;
+                case "--calibrationRuns":
+                    if (i + 1 < args.length) {
+                        config.setCalibrationRuns(Integer.parseInt(args[++i]));
+                    }
+                    break;
+                case "--coverageSelection":
+                    config.setCoverageSelection(true);
+                    break;
+                case "--faultLocalization":
+                    if (i + 1 < args.length) {
+                        config.setFaultLocalization(parseOption("--faultLocalization", args[++i], Config.FAULT_LOCALIZATION_FILE,
+                            Config.FAULT_LOCALIZATION_OCHIAI, Config.FAULT_LOCALIZATION_TARANTULA));
+                    } else {
+                        throw new IllegalArgumentException("--faultLocalization requires an argument: file|ochiai|tarantula");
+                    }
+                    break;
+                case "--flTopK":
+                    if (i + 1 < args.length) {
+                        config.setFaultLocalizationTopK(Integer.parseInt(args[++i]));
+                    }
+                    break;
+                case "--typeFilter":
+                    if (i + 1 < args.length) {
+                        config.setTypeFilter(parseOption("--typeFilter", args[++i], Config.TYPE_FILTER_OFF,
+                            Config.TYPE_FILTER_ON, Config.TYPE_FILTER_AUDIT));
+                    } else {
+                        throw new IllegalArgumentException("--typeFilter requires an argument: off|on|audit");
+                    }
+                    break;
+                case "--mutantSchemata":
+                    config.setMutantSchemata(true);
+                    break;
+                case "--normalizeCandidates":
+                    config.setNormalizeCandidates(true);
+                    break;
+                case "--compileWorkers":
+                    if (i + 1 < args.length) {
+                        config.setCompileWorkers(Integer.parseInt(args[++i]));
+                    }
+                    break;
+                case "--testWorkers":
+                    if (i + 1 < args.length) {
+                        config.setTestWorkers(Integer.parseInt(args[++i]));
+                    }
+                    break;
+                case "--negativeEditCache":
+                    config.setNegativeEditCache(true);
+                    break;
+                case "--runawayGuard":
+                    config.setRunawayGuard(true);
+                    break;
+                case "--stepBudget":
+                    if (i + 1 < args.length) {
+                        config.setStepBudget(Integer.parseInt(args[++i]));
+                    }
+                    break;
+                case "--metaspaceLimitMb":
+                    if (i + 1 < args.length) {
+                        config.setMetaspaceLimitMb(Integer.parseInt(args[++i]));
+                    }
+                    break;
                 case "--verbose":
                     config.setVerbose(true);
                     break;
             }
         }
 
+        if (config.getStepBudget() > 0 && Config.TEST_BACKEND_FORKED.equals(config.getTestBackend())) {
+            // Budgets are calibrated and enforced by the in-process runner; worker JVMs have no guard.
+            throw new IllegalArgumentException("--stepBudget requires --testBackend inprocess");
+        }
         return config;
     }
 
+    private static String parseCompileMode(String value) {
+        String mode = value.trim().toLowerCase();
+        if (!Config.COMPILE_MODE_MEMORY.equals(mode) && !Config.COMPILE_MODE_DISK.equals(mode)
+                && !Config.COMPILE_MODE_BATCH.equals(mode)) {
+            throw new IllegalArgumentException("--compileMode must be one of: memory, disk, batch");
+        }
+        return mode;
+    }
+
+    private static String parseTestBackend(String value) {
+        String backend = value.trim().toLowerCase();
+        if (!Config.TEST_BACKEND_INPROCESS.equals(backend) && !Config.TEST_BACKEND_FORKED.equals(backend)) {
+            throw new IllegalArgumentException("--testBackend must be one of: inprocess, forked");
+        }
+        return backend;
+    }
+
+    private static String parseOption(String option, String value, String... allowed) {
+        for (String candidate : allowed) {
+            if (candidate.equalsIgnoreCase(value.trim())) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException(option + " must be one of: " + String.join(", ", allowed));
+    }
+
     private static void printUsage() {
         String usage = """
             Usage: java -jar apr-tool.jar [options]
@@ -227,6 +461,35 @@ public class Main {
               --negativeTestWeight <w>  Weight for failing tests (default: 10.0)
               --mutationWeight <w>   Mutation weight (default: 0.06)
               --runTests <buggy|fixed>  Only compile+run tests for buggy/fixed version
+              --compileMode <memory|disk|batch>  Candidate compilation pipeline (default: memory)
+              --threads <n>          Parallel candidate evaluations, 0 = all cores (default: 1)
+              --cacheSize <n>        Fitness cache entries, 0 = disabled (default: 10000)
+              --fitnessStore <file>  Persistent fitness store shared across runs/processes
+              --testBackend <inprocess|forked>  Where candidate tests run (default: inprocess)
+              --forkedWorkers <n>    Worker JVMs for the forked backend, 0 = one per thread (default: 0)
+              --stagedEvaluation <off|negativesFirst|shortCircuit>  Run negative tests first and
+                                     optionally skip positives for hopeless candidates (default: off)
+              --abortBelow <off|worstElite|tournament>  Stop a candidate's tests once it cannot reach
+                                     the previous generation's weakest elite or tournament winner (default: off)
+              --sampleSize <n>       Positive tests sampled per candidate, 0 = all (default: 0)
+              --operatorFastPath     Derive single-operator mutants from the original bytecode instead of javac
+              --mutantSchemata       Compile each batch of method-body mutants as one schema program
+              --calibrationRuns <n>  Baseline runs used to derive per-test timeouts, 0 = fixed 2s (default: 0)
+              --coverageSelection    Skip tests that never reach a candidate's changed statements
+              --faultLocalization <file|ochiai|tarantula>  Suspiciousness source: fault-localization.json
+                                     or spectrum-based scores from the buggy program's test coverage (default: file)
+              --flTopK <n>           Spectrum lines kept as mutation targets, highest first, 0 = all (default: 0)
+              --typeFilter <off|on|audit>  Reject certainly ill-typed candidates before javac, or only
+                                     report how the filter's verdicts compare with javac's (default: off)
+              --normalizeCandidates  Cache candidates under a canonical form so trivially equivalent ones share a result
+              --compileWorkers <n>   Compile threads of a compile/test pipeline, 0 = no pipeline (default: 0)
+              --testWorkers <n>      Test threads of a compile/test pipeline, 0 = no pipeline (default: 0)
+              --negativeEditCache    Stop proposing single edits that already failed to compile on their own
+              --runawayGuard         Stop candidate threads, even busy loops, that outlive their tests
+              --stepBudget <n>       Fail a test once the candidate takes n times the loop iterations and
+                                     calls the baseline took on it, 0 = no budget (default: 0)
+              --metaspaceLimitMb <n> Recycle the test environment once leaked candidate loaders grow
+                                     metaspace by n MB, 0 = no monitoring (default: 0)
               --verbose              Enable verbose output
             """;
         System.out.println(usage);
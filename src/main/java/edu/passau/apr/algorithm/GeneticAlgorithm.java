@@ -1,6 +1,7 @@
 package edu.passau.apr.algorithm;
 
 import edu.passau.apr.evaluator.FitnessEvaluator;
+import edu.passau.apr.model.Edit;
 import edu.passau.apr.model.FitnessResult;
 import edu.passau.apr.model.Patch;
 import edu.passau.apr.operator.PatchGenerator;
@@ -8,8 +9,10 @@ import edu.passau.apr.util.Pair;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import static java.util.Collections.shuffle;
 
@@ -27,6 +30,8 @@ public class GeneticAlgorithm {
     private final Random random;
     private final PatchGenerator patchGenerator;
     private final FitnessEvaluator fitnessEvaluator;
+    // Edit scripts of the guided seeds used so far, so redrawn seeds only add new ones.
+    private final Set<List<Edit>> guidedScripts = new HashSet<>();
 
     private List<Patch> population;
     private List<FitnessResult> fitnesses;
@@ -88,6 +93,8 @@ public class GeneticAlgorithm {
             if (selectedParents.isEmpty()) {
                 selectedParents = select(population, fitnesses, Math.max(2, populationSize / 2));
             }
+            double worstEliteFitness = lowestFitness(getTopFitnesses(viFit, currentEliteSize));
+            double tournamentCutoff = lowestFitness(fitnessesOf(selectedParents));
 
             var pairs = pairUp(selectedParents);
             for (Pair<Patch, Patch> parents : pairs) {
@@ -125,7 +132,21 @@ public class GeneticAlgorithm {
                 newPopulation.set(i, elitePatches.get(i).copy());
             }
 
+            // Guided seeds the negative edit cache now skips make room for the next guided
+            // candidates; they take the last slots, never an elite's.
+            if (patchGenerator.getNegativeEditCache() != null) {
+                List<Patch> newSeeds = newGuidedSeeds(Math.min(maxEliteSize, newPopulation.size() - elitePatches.size()));
+                for (int i = 0; i < newSeeds.size(); i++) {
+                    newPopulation.set(newPopulation.size() - 1 - i, newSeeds.get(i));
+                }
+            }
+
             population = newPopulation;
+            if (bestFitness != null) {
+                // Elites are carried over, so this generation's best is at least the previous one.
+                fitnessEvaluator.setEliteFitness(bestFitness.fitness());
+            }
+            fitnessEvaluator.setSelectionCutoffs(worstEliteFitness, tournamentCutoff);
             evaluatePopulation();
             logProgress();
         }
@@ -191,6 +212,7 @@ public class GeneticAlgorithm {
         int guidedCount = Math.min(populationSize, Math.max(6, (populationSize * 2) / 3));
         List<Patch> guidedSeeds = patchGenerator.generateGuidedPatches(guidedCount);
         population.addAll(guidedSeeds);
+        guidedSeeds.forEach(seed -> guidedScripts.add(seed.getEdits()));
 
         for (int i = population.size(); i < populationSize; i++) {
             Patch patch = patchGenerator.generateRandomPatch();
@@ -198,15 +220,45 @@ public class GeneticAlgorithm {
         }
     }
 
+    /**
+     * Draws the guided seeds again and returns up to {@code maxCount} of those not seeded before.
+     */
+    private List<Patch> newGuidedSeeds(int maxCount) {
+        List<Patch> newSeeds = new ArrayList<>();
+        if (maxCount <= 0) {
+            return newSeeds;
+        }
+        int guidedCount = Math.min(populationSize, Math.max(6, (populationSize * 2) / 3));
+        for (Patch seed : patchGenerator.generateGuidedPatches(guidedCount)) {
+            if (newSeeds.size() == maxCount) {
+                break;
+            }
+            if (guidedScripts.add(seed.getEdits())) {
+                newSeeds.add(seed);
+            }
+        }
+        return newSeeds;
+    }
+
     private void evaluatePopulation() {
         fitnesses = new ArrayList<>();
         bestFitness = null;
         bestPatch = null;
 
+        List<String> patchSources = new ArrayList<>(population.size());
         for (Patch patch : population) {
-            String patchSrc = patch.getCompilationUnit().toString();
-            FitnessResult fitness = fitnessEvaluator.evaluate(patchSrc);
+            patchSources.add(patch.getCompilationUnit().toString());
+        }
+
+        // Results come back in population order, so seeded runs stay deterministic with --threads.
+        List<FitnessResult> results = fitnessEvaluator.evaluateAll(patchSources);
+        for (int i = 0; i < results.size(); i++) {
+            Patch patch = population.get(i);
+            FitnessResult fitness = results.get(i);
             fitnesses.add(fitness);
+            if (!fitness.compiles() && fitnessEvaluator.failedToCompile(patchSources.get(i))) {
+                patchGenerator.recordCompileFailure(patch);
+            }
 
             if (bestFitness == null || fitness.fitness() > bestFitness.fitness()) {
                 bestFitness = fitness;
@@ -266,6 +318,39 @@ public class GeneticAlgorithm {
         return best;
     }
 
+    private List<FitnessResult> getTopFitnesses(List<FitnessResult> patchFitnesses, int limit) {
+        List<FitnessResult> sorted = new ArrayList<>(patchFitnesses);
+        sorted.sort(Comparator.comparingDouble(FitnessResult::fitness).reversed());
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    private List<FitnessResult> fitnessesOf(List<Patch> patches) {
+        List<FitnessResult> result = new ArrayList<>();
+        for (Patch patch : patches) {
+            for (int i = 0; i < population.size() && i < fitnesses.size(); i++) {
+                if (population.get(i) == patch) {
+                    result.add(fitnesses.get(i));
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the lowest fitness among unbounded results, or negative infinity when there is none.
+     * Bounded results are skipped: their fitness is only a lower bound and would drag the cutoff down.
+     */
+    private double lowestFitness(List<FitnessResult> patchFitnesses) {
+        double lowest = Double.POSITIVE_INFINITY;
+        for (FitnessResult fitnessResult : patchFitnesses) {
+            if (fitnessResult.precision() != FitnessResult.Precision.BOUNDED) {
+                lowest = Math.min(lowest, fitnessResult.fitness());
+            }
+        }
+        return lowest == Double.POSITIVE_INFINITY ? Double.NEGATIVE_INFINITY : lowest;
+    }
+
     private boolean hasAnyPassingTests(List<FitnessResult> patchFitnesses) {
         for (FitnessResult fitnessResult : patchFitnesses) {
             if (fitnessResult.passingTests() > 0) {
@@ -14,6 +14,29 @@ public class Config {
     private double mutationWeight;
     private boolean verbose;
     private String runTestsTarget; // "buggy" | "fixed" | null
+    private String compileMode; // "memory" | "disk" | "batch"
+    private int threads; // 0 = one per available processor
+    private int fitnessCacheSize; // 0 = disabled
+    private String fitnessStorePath; // null = no persistent store
+    private String testBackend; // "inprocess" | "forked"
+    private int forkedWorkers; // 0 = one per evaluation thread
+    private String stagedEvaluation; // "off" | "negativesFirst" | "shortCircuit"
+    private String abortBelow; // "off" | "worstElite" | "tournament"
+    private int testSampleSize; // 0 = run every positive test
+    private boolean operatorFastPath;
+    private boolean mutantSchemata;
+    private int calibrationRuns; // 0 = fixed test timeouts
+    private boolean coverageSelection;
+    private String faultLocalization; // "file" | "ochiai" | "tarantula"
+    private int faultLocalizationTopK; // 0 = no cap on targeted statements
+    private String typeFilter; // "off" | "on" | "audit"
+    private boolean normalizeCandidates;
+    private int compileWorkers; // 0 with testWorkers 0 = no compile/test pipeline
+    private int testWorkers;
+    private boolean negativeEditCache;
+    private boolean runawayGuard;
+    private int stepBudget; // 0 = no step budgets, else a multiple of each test's baseline steps
+    private int metaspaceLimitMb; // 0 = no loader leak monitoring
 
     // Default values
     public static final int DEFAULT_POPULATION_SIZE = 40;
@@ -22,6 +45,25 @@ public class Config {
     public static final double DEFAULT_MUTATION_WEIGHT = 0.06;
     public static final int DEFAULT_MAX_GENERATIONS = 50;
     public static final long DEFAULT_TIME_LIMIT_SEC = 60;
+    public static final String COMPILE_MODE_MEMORY = "memory";
+    public static final String COMPILE_MODE_DISK = "disk";
+    public static final String COMPILE_MODE_BATCH = "batch";
+    public static final int DEFAULT_THREADS = 1;
+    public static final int DEFAULT_FITNESS_CACHE_SIZE = 10_000;
+    public static final String TEST_BACKEND_INPROCESS = "inprocess";
+    public static final String TEST_BACKEND_FORKED = "forked";
+    public static final String STAGED_EVALUATION_OFF = "off";
+    public static final String STAGED_EVALUATION_NEGATIVES_FIRST = "negativesFirst";
+    public static final String STAGED_EVALUATION_SHORT_CIRCUIT = "shortCircuit";
+    public static final String ABORT_BELOW_OFF = "off";
+    public static final String ABORT_BELOW_WORST_ELITE = "worstElite";
+    public static final String ABORT_BELOW_TOURNAMENT = "tournament";
+    public static final String FAULT_LOCALIZATION_FILE = "file";
+    public static final String FAULT_LOCALIZATION_OCHIAI = "ochiai";
+    public static final String FAULT_LOCALIZATION_TARANTULA = "tarantula";
+    public static final String TYPE_FILTER_OFF = "off";
+    public static final String TYPE_FILTER_ON = "on";
+    public static final String TYPE_FILTER_AUDIT = "audit";
 
     public Config() {
         this.populationSize = DEFAULT_POPULATION_SIZE;
@@ -33,6 +75,14 @@ public class Config {
         this.seed = System.currentTimeMillis();
         this.verbose = false;
         this.runTestsTarget = null;
+        this.compileMode = COMPILE_MODE_MEMORY;
+        this.threads = DEFAULT_THREADS;
+        this.fitnessCacheSize = DEFAULT_FITNESS_CACHE_SIZE;
+        this.testBackend = TEST_BACKEND_INPROCESS;
+        this.stagedEvaluation = STAGED_EVALUATION_OFF;
+        this.abortBelow = ABORT_BELOW_OFF;
+        this.faultLocalization = FAULT_LOCALIZATION_FILE;
+        this.typeFilter = TYPE_FILTER_OFF;
     }
 
     public String getBenchmarkPath() {
@@ -114,4 +164,188 @@ public class Config {
     public void setRunTestsTarget(String runTestsTarget) {
         this.runTestsTarget = runTestsTarget;
     }
+
+    public String getCompileMode() {
+        return compileMode;
+    }
+
+    public void setCompileMode(String compileMode) {
+        this.compileMode = compileMode;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getFitnessCacheSize() {
+        return fitnessCacheSize;
+    }
+
+    public void setFitnessCacheSize(int fitnessCacheSize) {
+        this.fitnessCacheSize = fitnessCacheSize;
+    }
+
+    public String getFitnessStorePath() {
+        return fitnessStorePath;
+    }
+
+    public void setFitnessStorePath(String fitnessStorePath) {
+        this.fitnessStorePath = fitnessStorePath;
+    }
+
+    public String getTestBackend() {
+        return testBackend;
+    }
+
+    public void setTestBackend(String testBackend) {
+        this.testBackend = testBackend;
+    }
+
+    public int getForkedWorkers() {
+        return forkedWorkers;
+    }
+
+    public void setForkedWorkers(int forkedWorkers) {
+        this.forkedWorkers = forkedWorkers;
+    }
+
+    public String getStagedEvaluation() {
+        return stagedEvaluation;
+    }
+
+    public void setStagedEvaluation(String stagedEvaluation) {
+        this.stagedEvaluation = stagedEvaluation;
+    }
+
+    public String getAbortBelow() {
+        return abortBelow;
+    }
+
+    public void setAbortBelow(String abortBelow) {
+        this.abortBelow = abortBelow;
+    }
+
+    public int getTestSampleSize() {
+        return testSampleSize;
+    }
+
+    public void setTestSampleSize(int testSampleSize) {
+        this.testSampleSize = testSampleSize;
+    }
+
+    public boolean isOperatorFastPath() {
+        return operatorFastPath;
+    }
+
+    public void setOperatorFastPath(boolean operatorFastPath) {
+        this.operatorFastPath = operatorFastPath;
+    }
+
+    public boolean isMutantSchemata() {
+        return mutantSchemata;
+    }
+
+    public void setMutantSchemata(boolean mutantSchemata) {
+        this.mutantSchemata = mutantSchemata;
+    }
+
+    public int getCalibrationRuns() {
+        return calibrationRuns;
+    }
+
+    public void setCalibrationRuns(int calibrationRuns) {
+        this.calibrationRuns = calibrationRuns;
+    }
+
+    public boolean isCoverageSelection() {
+        return coverageSelection;
+    }
+
+    public void setCoverageSelection(boolean coverageSelection) {
+        this.coverageSelection = coverageSelection;
+    }
+
+    public String getFaultLocalization() {
+        return faultLocalization;
+    }
+
+    public void setFaultLocalization(String faultLocalization) {
+        this.faultLocalization = faultLocalization;
+    }
+
+    public int getFaultLocalizationTopK() {
+        return faultLocalizationTopK;
+    }
+
+    public void setFaultLocalizationTopK(int faultLocalizationTopK) {
+        this.faultLocalizationTopK = faultLocalizationTopK;
+    }
+
+    public String getTypeFilter() {
+        return typeFilter;
+    }
+
+    public void setTypeFilter(String typeFilter) {
+        this.typeFilter = typeFilter;
+    }
+
+    public boolean isNormalizeCandidates() {
+        return normalizeCandidates;
+    }
+
+    public void setNormalizeCandidates(boolean normalizeCandidates) {
+        this.normalizeCandidates = normalizeCandidates;
+    }
+
+    public int getCompileWorkers() {
+        return compileWorkers;
+    }
+
+    public void setCompileWorkers(int compileWorkers) {
+        this.compileWorkers = compileWorkers;
+    }
+
+    public int getTestWorkers() {
+        return testWorkers;
+    }
+
+    public void setTestWorkers(int testWorkers) {
+        this.testWorkers = testWorkers;
+    }
+
+    public boolean isNegativeEditCache() {
+        return negativeEditCache;
+    }
+
+    public void setNegativeEditCache(boolean negativeEditCache) {
+        this.negativeEditCache = negativeEditCache;
+    }
+
+    public boolean isRunawayGuard() {
+        return runawayGuard;
+    }
+
+    public void setRunawayGuard(boolean runawayGuard) {
+        this.runawayGuard = runawayGuard;
+    }
+
+    public int getStepBudget() {
+        return stepBudget;
+    }
+
+    public void setStepBudget(int stepBudget) {
+        this.stepBudget = stepBudget;
+    }
+
+    public int getMetaspaceLimitMb() {
+        return metaspaceLimitMb;
+    }
+
+    public void setMetaspaceLimitMb(int metaspaceLimitMb) {
+        this.metaspaceLimitMb = metaspaceLimitMb;
+    }
 }
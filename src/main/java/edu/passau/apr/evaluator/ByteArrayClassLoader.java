@@ -0,0 +1,28 @@
+package edu.passau.apr.evaluator;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+
+/**
+ * Class loader that defines in-memory bytecode before falling back to its URL classpath.
+ * Classes given as bytes shadow same-named classes on the classpath, so test classes
+ * loaded through this loader link against the candidate instead of the precompiled original.
+ */
+final class ByteArrayClassLoader extends URLClassLoader {
+    private final Map<String, byte[]> classBytes;
+
+    ByteArrayClassLoader(URL[] urls, ClassLoader parent, Map<String, byte[]> classBytes) {
+        super(urls, parent);
+        this.classBytes = classBytes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = classBytes.get(name);
+        if (bytes != null) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+        return super.findClass(name);
+    }
+}
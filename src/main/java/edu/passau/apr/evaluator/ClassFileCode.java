@@ -0,0 +1,204 @@
+package edu.passau.apr.evaluator;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal class-file reader that lists every bytecode instruction of every method together with
+ * its source line. Only what {@link OperatorFastPath} needs is decoded: the constant pool is
+ * skipped except for attribute names, and instruction operands are not interpreted.
+ */
+final class ClassFileCode {
+
+    /**
+     * @param offset         position of the opcode byte within the class file
+     * @param opcode         the opcode
+     * @param previousOpcode opcode of the preceding instruction in the same method, or -1
+     * @param line           source line from the LineNumberTable, or -1 without debug info
+     */
+    record Instruction(int offset, int opcode, int previousOpcode, int line) {}
+
+    private ClassFileCode() {
+    }
+
+    static List<Instruction> instructions(byte[] classBytes) {
+        ByteBuffer in = ByteBuffer.wrap(classBytes);
+        if (in.getInt() != 0xCAFEBABE) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        in.getShort(); // minor version
+        in.getShort(); // major version
+
+        int constantCount = Short.toUnsignedInt(in.getShort());
+        Map<Integer, String> utf8 = new HashMap<>();
+        for (int i = 1; i < constantCount; i++) {
+            int tag = Byte.toUnsignedInt(in.get());
+            switch (tag) {
+                case 1 -> {
+                    byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+                    in.get(bytes);
+                    utf8.put(i, new String(bytes, java.nio.charset.StandardCharsets.UTF_8));
+                }
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> skip(in, 4);
+                case 5, 6 -> {
+                    skip(in, 8);
+                    i++; // long and double take two slots
+                }
+                case 7, 8, 16, 19, 20 -> skip(in, 2);
+                case 15 -> skip(in, 3);
+                default -> throw new IllegalArgumentException("Unknown constant tag " + tag);
+            }
+        }
+
+        skip(in, 6); // access flags, this class, super class
+        skip(in, 2 * Short.toUnsignedInt(in.getShort())); // interfaces
+        int fieldCount = Short.toUnsignedInt(in.getShort());
+        for (int i = 0; i < fieldCount; i++) {
+            skip(in, 6);
+            skipAttributes(in);
+        }
+
+        List<Instruction> instructions = new ArrayList<>();
+        int methodCount = Short.toUnsignedInt(in.getShort());
+        for (int i = 0; i < methodCount; i++) {
+            skip(in, 6);
+            int attributeCount = Short.toUnsignedInt(in.getShort());
+            for (int a = 0; a < attributeCount; a++) {
+                String name = utf8.get(Short.toUnsignedInt(in.getShort()));
+                int length = in.getInt();
+                int end = in.position() + length;
+                if ("Code".equals(name)) {
+                    readCode(in, utf8, instructions);
+                }
+                in.position(end);
+            }
+        }
+        return instructions;
+    }
+
+    private static void readCode(ByteBuffer in, Map<Integer, String> utf8, List<Instruction> instructions) {
+        skip(in, 4); // max stack, max locals
+        int codeLength = in.getInt();
+        int codeStart = in.position();
+        in.position(codeStart + codeLength);
+        skip(in, 8 * Short.toUnsignedInt(in.getShort())); // exception table
+
+        // LineNumberTable entries map start pcs to lines; an instruction belongs to the last entry at or before it.
+        int[] lineByPc = new int[codeLength];
+        java.util.Arrays.fill(lineByPc, -1);
+        List<int[]> lineEntries = new ArrayList<>();
+        int attributeCount = Short.toUnsignedInt(in.getShort());
+        for (int a = 0; a < attributeCount; a++) {
+            String name = utf8.get(Short.toUnsignedInt(in.getShort()));
+            int length = in.getInt();
+            int end = in.position() + length;
+            if ("LineNumberTable".equals(name)) {
+                int entries = Short.toUnsignedInt(in.getShort());
+                for (int e = 0; e < entries; e++) {
+                    lineEntries.add(new int[] {Short.toUnsignedInt(in.getShort()), Short.toUnsignedInt(in.getShort())});
+                }
+            }
+            in.position(end);
+        }
+        lineEntries.sort((x, y) -> Integer.compare(x[0], y[0]));
+        for (int e = 0; e < lineEntries.size(); e++) {
+            int from = lineEntries.get(e)[0];
+            int to = e + 1 < lineEntries.size() ? lineEntries.get(e + 1)[0] : codeLength;
+            for (int pc = from; pc < to && pc < codeLength; pc++) {
+                lineByPc[pc] = lineEntries.get(e)[1];
+            }
+        }
+
+        byte[] code = in.array();
+        int pc = 0;
+        int previous = -1;
+        while (pc < codeLength) {
+            int opcode = Byte.toUnsignedInt(code[codeStart + pc]);
+            instructions.add(new Instruction(codeStart + pc, opcode, previous, lineByPc[pc]));
+            previous = opcode;
+            pc += instructionLength(code, codeStart, pc, opcode);
+        }
+    }
+
+    private static int instructionLength(byte[] code, int codeStart, int pc, int opcode) {
+        switch (opcode) {
+            case 0xaa -> { // tableswitch
+                int operands = codeStart + pc + 1 + padding(pc);
+                int low = readInt(code, operands + 4);
+                int high = readInt(code, operands + 8);
+                return 1 + padding(pc) + 12 + 4 * (high - low + 1);
+            }
+            case 0xab -> { // lookupswitch
+                int operands = codeStart + pc + 1 + padding(pc);
+                int pairs = readInt(code, operands + 4);
+                return 1 + padding(pc) + 8 + 8 * pairs;
+            }
+            case 0xc4 -> { // wide
+                return Byte.toUnsignedInt(code[codeStart + pc + 1]) == 0x84 ? 6 : 4;
+            }
+            default -> {
+                return FIXED_LENGTHS[opcode];
+            }
+        }
+    }
+
+    private static int padding(int pc) {
+        return (4 - ((pc + 1) % 4)) % 4;
+    }
+
+    private static int readInt(byte[] bytes, int position) {
+        return ByteBuffer.wrap(bytes, position, 4).getInt();
+    }
+
+    private static void skip(ByteBuffer in, int bytes) {
+        in.position(in.position() + bytes);
+    }
+
+    private static void skipAttributes(ByteBuffer in) {
+        int attributeCount = Short.toUnsignedInt(in.getShort());
+        for (int a = 0; a < attributeCount; a++) {
+            skip(in, 2);
+            skip(in, in.getInt());
+        }
+    }
+
+    private static final int[] FIXED_LENGTHS = new int[256];
+
+    static {
+        java.util.Arrays.fill(FIXED_LENGTHS, 1);
+        FIXED_LENGTHS[0x10] = 2; // bipush
+        FIXED_LENGTHS[0x11] = 3; // sipush
+        FIXED_LENGTHS[0x12] = 2; // ldc
+        FIXED_LENGTHS[0x13] = 3; // ldc_w
+        FIXED_LENGTHS[0x14] = 3; // ldc2_w
+        for (int op = 0x15; op <= 0x19; op++) {
+            FIXED_LENGTHS[op] = 2; // loads with index
+        }
+        for (int op = 0x36; op <= 0x3a; op++) {
+            FIXED_LENGTHS[op] = 2; // stores with index
+        }
+        FIXED_LENGTHS[0x84] = 3; // iinc
+        for (int op = 0x99; op <= 0xa8; op++) {
+            FIXED_LENGTHS[op] = 3; // conditional branches, goto, jsr
+        }
+        FIXED_LENGTHS[0xa9] = 2; // ret
+        for (int op = 0xb2; op <= 0xb8; op++) {
+            FIXED_LENGTHS[op] = 3; // field access, invokevirtual/special/static
+        }
+        FIXED_LENGTHS[0xb9] = 5; // invokeinterface
+        FIXED_LENGTHS[0xba] = 5; // invokedynamic
+        FIXED_LENGTHS[0xbb] = 3; // new
+        FIXED_LENGTHS[0xbc] = 2; // newarray
+        FIXED_LENGTHS[0xbd] = 3; // anewarray
+        FIXED_LENGTHS[0xc0] = 3; // checkcast
+        FIXED_LENGTHS[0xc1] = 3; // instanceof
+        FIXED_LENGTHS[0xc5] = 4; // multianewarray
+        FIXED_LENGTHS[0xc6] = 3; // ifnull
+        FIXED_LENGTHS[0xc7] = 3; // ifnonnull
+        FIXED_LENGTHS[0xc8] = 5; // goto_w
+        FIXED_LENGTHS[0xc9] = 5; // jsr_w
+    }
+}
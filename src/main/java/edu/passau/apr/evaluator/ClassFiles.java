@@ -0,0 +1,47 @@
+package edu.passau.apr.evaluator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Helpers for reading compiled classes from an output directory.
+ */
+final class ClassFiles {
+
+    private ClassFiles() {
+    }
+
+    /**
+     * Reads every {@code .class} file below {@code dir}, keyed by binary class name.
+     */
+    static Map<String, byte[]> read(Path dir) throws IOException {
+        Map<String, byte[]> classBytes = new LinkedHashMap<>();
+        try (java.util.stream.Stream<Path> stream = Files.walk(dir)) {
+            for (Path classFile : (Iterable<Path>) stream.filter(p -> p.toString().endsWith(".class"))::iterator) {
+                String relative = dir.relativize(classFile).toString();
+                String className = relative.substring(0, relative.length() - ".class".length())
+                    .replace(File.separatorChar, '.');
+                classBytes.put(className, Files.readAllBytes(classFile));
+            }
+        }
+        return classBytes;
+    }
+
+    /**
+     * Reads the precompiled test classes without the program under repair and its nested classes,
+     * which every candidate supplies itself.
+     */
+    static Map<String, byte[]> readTestClasses(Path testClassesDir, String mainClassName) throws IOException {
+        Map<String, byte[]> classBytes = read(testClassesDir);
+        classBytes.keySet().removeIf(className -> belongsTo(className, mainClassName));
+        return classBytes;
+    }
+
+    static boolean belongsTo(String className, String topLevelClassName) {
+        return className.equals(topLevelClassName) || className.startsWith(topLevelClassName + "$");
+    }
+}
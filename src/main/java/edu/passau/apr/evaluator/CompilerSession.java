@@ -0,0 +1,110 @@
+package edu.passau.apr.evaluator;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Long-lived javac front end owned by one evaluator.
+ * The compiler and its standard file manager are created once, so the platform image,
+ * the opened classpath archives and their package indexes stay warm across candidates.
+ * Not thread-safe: javac file managers must not be shared between concurrent tasks.
+ */
+final class CompilerSession implements Closeable {
+    // Processor discovery scans every classpath entry per task; mutants never need it.
+    private static final List<String> CANDIDATE_OPTIONS = List.of("-proc:none", "-Xlint:none");
+
+    private final JavaCompiler compiler;
+    private final StandardJavaFileManager fileManager;
+    private final InMemoryFileManager memoryFileManager;
+
+    private CompilerSession(JavaCompiler compiler, StandardJavaFileManager fileManager) {
+        this.compiler = compiler;
+        this.fileManager = fileManager;
+        this.memoryFileManager = new InMemoryFileManager(fileManager);
+    }
+
+    /**
+     * Opens a session over the given classpath, or returns null when no system compiler is available.
+     */
+    static CompilerSession open(List<File> classPath) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return null;
+        }
+
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        fileManager.setLocation(StandardLocation.CLASS_PATH, classPath);
+        // Candidates are single self-contained units; never look for sibling sources on the classpath.
+        fileManager.setLocation(StandardLocation.SOURCE_PATH, List.of());
+        return new CompilerSession(compiler, fileManager);
+    }
+
+    /**
+     * Creates a compilation task for one in-memory candidate. After the task succeeded the
+     * bytecode is available from {@link #drainClassBytes()}.
+     */
+    Callable<Boolean> inMemoryTask(String className, String source) {
+        return inMemoryTask(className, source, null);
+    }
+
+    /**
+     * Like {@link #inMemoryTask(String, String)}, reporting diagnostics to the given listener.
+     */
+    Callable<Boolean> inMemoryTask(String className, String source, DiagnosticListener<? super JavaFileObject> diagnostics) {
+        memoryFileManager.drainClassBytes();
+        return compiler.getTask(
+            silentOutput(), memoryFileManager, diagnostics, CANDIDATE_OPTIONS, null,
+            List.of(new InMemoryJavaSource(className, source))
+        );
+    }
+
+    /**
+     * Creates one compilation task for several in-memory units, keyed by their fully qualified
+     * class names. Diagnostics name the unit they belong to through {@link Diagnostic#getSource()}.
+     */
+    Callable<Boolean> inMemoryBatchTask(Map<String, String> sourcesByClassName,
+                                        DiagnosticListener<? super JavaFileObject> diagnostics) {
+        memoryFileManager.drainClassBytes();
+        List<JavaFileObject> units = new ArrayList<>();
+        sourcesByClassName.forEach((className, source) -> units.add(new InMemoryJavaSource(className, source)));
+        return compiler.getTask(silentOutput(), memoryFileManager, diagnostics, CANDIDATE_OPTIONS, null, units);
+    }
+
+    Map<String, byte[]> drainClassBytes() {
+        return memoryFileManager.drainClassBytes();
+    }
+
+    /**
+     * Creates a compilation task that writes class files for the given sources into outputDir.
+     */
+    Callable<Boolean> fileTask(List<File> sourceFiles, Path outputDir) throws IOException {
+        fileManager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(outputDir.toFile()));
+        Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(sourceFiles);
+        return compiler.getTask(silentOutput(), fileManager, null, new ArrayList<>(CANDIDATE_OPTIONS), null, units);
+    }
+
+    private PrintWriter silentOutput() {
+        // Candidate compilation failures are expected during search; keep evaluator output quiet.
+        return new PrintWriter(new StringWriter());
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileManager.close();
+    }
+}
@@ -0,0 +1,268 @@
+package edu.passau.apr.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.ExplicitConstructorInvocationStmt;
+import com.github.javaparser.ast.stmt.LabeledStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+
+import java.lang.reflect.Field;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statement coverage of every test on the original program, used to skip tests a candidate's
+ * changes cannot reach. Coverage comes from a source-instrumented copy of the original in which
+ * each statement is preceded by a probe ({@code Main.__AprCoverage.hits[i] = true;}) and each
+ * block starts with one.
+ *
+ * <p>A candidate is compared with the original by walking both syntax trees in parallel. Each
+ * difference is attributed to the innermost original statement that contains it, or to the
+ * enclosing block when statements were added or removed. A test that executed none of those
+ * statements on the original runs exactly as it did there, so its baseline outcome is reused.
+ * Differences outside any statement (fields, signatures, imports) make every test run.</p>
+ */
+public final class CoverageMap {
+
+    static final String HOLDER = "__AprCoverage";
+    private static final String HITS_FIELD = "hits";
+
+    private final CompilationUnit base;
+    private final List<Statement> statements;
+    private final String mainClassName;
+    // Probe that fires whenever the statement executes: its own, or that of an enclosing statement.
+    private final Map<Node, Integer> probes = new IdentityHashMap<>();
+    private final String instrumentedSource;
+    // Tests missing here have no usable coverage and always run.
+    private final Map<String, BitSet> coverageByTest = new HashMap<>();
+    private final AtomicLong executedTests = new AtomicLong();
+    private final AtomicLong reusedTests = new AtomicLong();
+
+    private CoverageMap(CompilationUnit base, List<Statement> statements, String mainClassName, String instrumentedSource) {
+        this.base = base;
+        this.statements = statements;
+        this.mainClassName = mainClassName;
+        this.instrumentedSource = instrumentedSource;
+    }
+
+    /**
+     * Instruments the original program, or returns null when it already uses the holder's name.
+     */
+    static CoverageMap create(String baseSource, String mainClassName) {
+        if (baseSource.contains(HOLDER)) {
+            return null;
+        }
+        CompilationUnit base = StaticJavaParser.parse(baseSource);
+        CompilationUnit instrumented = StaticJavaParser.parse(baseSource);
+        Optional<TypeDeclaration<?>> mainType = instrumented.getTypes().stream()
+            .filter(type -> type.getNameAsString().equals(mainClassName))
+            .findFirst();
+        if (mainType.isEmpty()) {
+            return null;
+        }
+
+        // Both trees are parsed from the same text, so their statements line up by traversal order.
+        List<Statement> baseStatements = base.findAll(Statement.class);
+        List<Statement> statements = instrumented.findAll(Statement.class);
+        boolean[] probed = new boolean[statements.size()];
+        for (int i = 0; i < statements.size(); i++) {
+            probed[i] = insertProbe(statements.get(i), mainClassName, i);
+        }
+
+        ClassOrInterfaceDeclaration holder = new ClassOrInterfaceDeclaration(
+            new NodeList<>(Modifier.staticModifier(), Modifier.finalModifier()), false, HOLDER);
+        holder.addFieldWithInitializer("boolean[]", HITS_FIELD,
+            StaticJavaParser.parseExpression("new boolean[" + statements.size() + "]"),
+            Modifier.Keyword.STATIC, Modifier.Keyword.FINAL);
+        mainType.get().addMember(holder);
+
+        CoverageMap coverageMap = new CoverageMap(base, baseStatements, mainClassName, instrumented.toString());
+        Map<Node, Integer> ownProbes = new IdentityHashMap<>();
+        for (int i = 0; i < baseStatements.size(); i++) {
+            if (probed[i]) {
+                ownProbes.put(baseStatements.get(i), i);
+            }
+        }
+        for (Statement statement : baseStatements) {
+            Node node = statement;
+            while (node != null && !ownProbes.containsKey(node)) {
+                node = node.getParentNode().orElse(null);
+            }
+            if (node != null) {
+                coverageMap.probes.put(statement, ownProbes.get(node));
+            }
+        }
+        return coverageMap;
+    }
+
+    /**
+     * Places the probe for statement {@code id}. Returns false where no probe can be placed without
+     * changing the program; such statements borrow the probe of an enclosing statement.
+     */
+    private static boolean insertProbe(Statement statement, String mainClassName, int id) {
+        Statement probe = StaticJavaParser.parseStatement(mainClassName + "." + HOLDER + "." + HITS_FIELD + "[" + id + "] = true;");
+        Node parent = statement.getParentNode().orElse(null);
+        if (statement instanceof BlockStmt block) {
+            boolean delegatingConstructor = parent instanceof ConstructorDeclaration
+                && block.getStatements().isNonEmpty()
+                && block.getStatement(0) instanceof ExplicitConstructorInvocationStmt;
+            if (delegatingConstructor) {
+                return false;
+            }
+            block.getStatements().addFirst(probe);
+            return true;
+        }
+        if (statement instanceof ExplicitConstructorInvocationStmt || parent instanceof LabeledStmt) {
+            return false;
+        }
+        if (parent instanceof BlockStmt block) {
+            block.getStatements().addBefore(probe, statement);
+            return true;
+        }
+        if (parent instanceof SwitchEntry entry) {
+            if (entry.getType() != SwitchEntry.Type.STATEMENT_GROUP) {
+                return false;
+            }
+            entry.getStatements().addBefore(probe, statement);
+            return true;
+        }
+        if (parent instanceof Statement) {
+            // Unbraced body of an if, loop or similar: wrap it together with its probe.
+            BlockStmt wrapper = new BlockStmt();
+            statement.replace(wrapper);
+            wrapper.addStatement(probe);
+            wrapper.addStatement(statement);
+            return true;
+        }
+        return false;
+    }
+
+    String instrumentedSource() {
+        return instrumentedSource;
+    }
+
+    /**
+     * Reads and clears the probe hits recorded in the given loader's copy of the instrumented program.
+     */
+    BitSet takeHits(ClassLoader loader) throws ReflectiveOperationException {
+        Field field = loader.loadClass(mainClassName + "$" + HOLDER).getDeclaredField(HITS_FIELD);
+        field.setAccessible(true);
+        boolean[] hits = (boolean[]) field.get(null);
+        BitSet covered = new BitSet(hits.length);
+        for (int i = 0; i < hits.length; i++) {
+            if (hits[i]) {
+                covered.set(i);
+                hits[i] = false;
+            }
+        }
+        return covered;
+    }
+
+    void recordCoverage(String testId, BitSet covered) {
+        coverageByTest.put(testId, covered);
+    }
+
+    /**
+     * Returns the tests whose outcome on the candidate must equal their baseline outcome, or an
+     * empty set when the candidate cannot be compared with the original statement by statement.
+     */
+    Set<String> unaffectedTests(String candidateSource, Set<String> allTestIds) {
+        Set<String> unaffected = new HashSet<>();
+        BitSet changed = changedProbes(candidateSource);
+        if (changed != null) {
+            coverageByTest.forEach((testId, covered) -> {
+                if (!covered.intersects(changed)) {
+                    unaffected.add(testId);
+                }
+            });
+        }
+        return unaffected;
+    }
+
+    /**
+     * Returns, per test with recorded coverage, the statements it executed on the original program.
+     * Bit {@code i} stands for the {@code i}-th element of {@code findAll(Statement.class)}.
+     */
+    Map<String, BitSet> statementCoverage() {
+        Map<String, BitSet> coverage = new HashMap<>();
+        coverageByTest.forEach((testId, covered) -> {
+            BitSet executed = new BitSet(statements.size());
+            for (int i = 0; i < statements.size(); i++) {
+                Integer probe = probes.get(statements.get(i));
+                if (probe != null && covered.get(probe)) {
+                    executed.set(i);
+                }
+            }
+            coverage.put(testId, executed);
+        });
+        return coverage;
+    }
+
+    void recordRun(int executed, int reused) {
+        executedTests.addAndGet(executed);
+        reusedTests.addAndGet(reused);
+    }
+
+    private BitSet changedProbes(String candidateSource) {
+        try {
+            BitSet changed = new BitSet();
+            return diff(base, StaticJavaParser.parse(candidateSource), null, changed) ? changed : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records in {@code changed} the probes covering every difference between the two subtrees.
+     * Returns false if a difference lies outside every probed statement.
+     */
+    private boolean diff(Node original, Node candidate, Integer enclosingProbe, BitSet changed) {
+        if (original.equals(candidate)) {
+            return true;
+        }
+        Integer probe = original instanceof Statement ? probes.get(original) : enclosingProbe;
+        List<Node> originalChildren = original.getChildNodes();
+        List<Node> candidateChildren = candidate.getChildNodes();
+        if (original.getClass() == candidate.getClass() && originalChildren.size() == candidateChildren.size()) {
+            boolean childDiffers = false;
+            for (int i = 0; i < originalChildren.size(); i++) {
+                if (!originalChildren.get(i).equals(candidateChildren.get(i))) {
+                    childDiffers = true;
+                    if (!diff(originalChildren.get(i), candidateChildren.get(i), probe, changed)) {
+                        return false;
+                    }
+                }
+            }
+            if (childDiffers) {
+                return true;
+            }
+        }
+        // The node itself differs: its kind, its child count or an attribute such as an operator.
+        if (probe == null) {
+            return false;
+        }
+        changed.set(probe);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Coverage selection: %d test runs executed, %d reused from the baseline",
+            executedTests.get(), reusedTests.get());
+    }
+}
@@ -0,0 +1,177 @@
+package edu.passau.apr.evaluator;
+
+import edu.passau.apr.model.FitnessResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-stage evaluation: compile workers turn candidates into class files and hand them to test
+ * workers through a bounded queue, so javac for one candidate overlaps with the tests of another.
+ * A full queue makes the compile workers wait, which bounds how many compiled but untested
+ * candidates (and their class bytes) are held at once.
+ *
+ * <p>Each stage adds up the time its workers spend working. {@link #toString()} relates that to
+ * the time the pipeline had candidates in flight, which shows which stage is the bottleneck.</p>
+ *
+ * @param <I> what the compile stage takes
+ * @param <C> what the compile stage hands to the test stage
+ */
+public final class EvaluationPipeline<I, C> implements AutoCloseable {
+
+    /**
+     * One stage of the pipeline. An exception fails the candidate's future.
+     */
+    interface Stage<T, R> {
+        R apply(T input) throws Exception;
+    }
+
+    private record Job<T>(T input, CompletableFuture<FitnessResult> result) {}
+
+    private final Stage<I, C> compileStage;
+    private final Stage<C, FitnessResult> testStage;
+    private final int compileWorkers;
+    private final int testWorkers;
+    private final ExecutorService compilePool;
+    private final BlockingQueue<Job<C>> compiled;
+    private final List<Thread> testThreads = new ArrayList<>();
+    private final AtomicLong compileBusyNanos = new AtomicLong();
+    private final AtomicLong compileBlockedNanos = new AtomicLong();
+    private final AtomicLong testBusyNanos = new AtomicLong();
+    private final AtomicLong candidates = new AtomicLong();
+    // Guarded by this: candidates submitted but not finished, and how long there were any.
+    private int inFlight;
+    private long activeSince;
+    private long activeNanos;
+
+    /**
+     * @param queueCapacity compiled candidates that may wait for a test worker
+     */
+    EvaluationPipeline(int compileWorkers, int testWorkers, int queueCapacity,
+                       Stage<I, C> compileStage, Stage<C, FitnessResult> testStage) {
+        this.compileStage = compileStage;
+        this.testStage = testStage;
+        this.compileWorkers = compileWorkers;
+        this.testWorkers = testWorkers;
+        this.compiled = new ArrayBlockingQueue<>(queueCapacity);
+        this.compilePool = Executors.newFixedThreadPool(compileWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "apr-compile-" + System.nanoTime());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < testWorkers; i++) {
+            Thread thread = new Thread(this::runTests, "apr-test-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            testThreads.add(thread);
+        }
+    }
+
+    /**
+     * Queues a candidate for compilation. Cancelling the returned future drops the candidate at
+     * the next stage boundary.
+     */
+    Future<FitnessResult> submit(I input) {
+        CompletableFuture<FitnessResult> result = new CompletableFuture<>();
+        candidates.incrementAndGet();
+        enter();
+        result.whenComplete((fitness, failure) -> leave());
+        compilePool.execute(() -> compile(new Job<>(input, result)));
+        return result;
+    }
+
+    private void compile(Job<I> job) {
+        if (job.result().isDone()) {
+            return;
+        }
+        long start = System.nanoTime();
+        C output;
+        try {
+            output = compileStage.apply(job.input());
+        } catch (Exception e) {
+            job.result().completeExceptionally(e);
+            return;
+        } finally {
+            compileBusyNanos.addAndGet(System.nanoTime() - start);
+        }
+        long queued = System.nanoTime();
+        try {
+            compiled.put(new Job<>(output, job.result()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.result().cancel(false);
+        } finally {
+            compileBlockedNanos.addAndGet(System.nanoTime() - queued);
+        }
+    }
+
+    private void runTests() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Job<C> job;
+            try {
+                job = compiled.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job.result().isDone()) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                job.result().complete(testStage.apply(job.input()));
+            } catch (InterruptedException e) {
+                job.result().completeExceptionally(e);
+                return;
+            } catch (Exception e) {
+                job.result().completeExceptionally(e);
+            } finally {
+                testBusyNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private synchronized void enter() {
+        if (inFlight++ == 0) {
+            activeSince = System.nanoTime();
+        }
+    }
+
+    private synchronized void leave() {
+        if (--inFlight == 0) {
+            activeNanos += System.nanoTime() - activeSince;
+        }
+    }
+
+    private synchronized long activeNanos() {
+        return inFlight > 0 ? activeNanos + System.nanoTime() - activeSince : activeNanos;
+    }
+
+    @Override
+    public void close() {
+        compilePool.shutdownNow();
+        testThreads.forEach(Thread::interrupt);
+    }
+
+    @Override
+    public String toString() {
+        long active = activeNanos();
+        double compileUtilization = utilization(compileBusyNanos.get(), compileWorkers, active);
+        double testUtilization = utilization(testBusyNanos.get(), testWorkers, active);
+        return String.format("Pipeline: %d candidates in %.1f s; compile %d workers %.1f%% busy"
+                + " (%.1f%% waiting on a full queue), test %d workers %.1f%% busy; bottleneck: %s",
+            candidates.get(), active / 1e9, compileWorkers, compileUtilization,
+            utilization(compileBlockedNanos.get(), compileWorkers, active), testWorkers, testUtilization,
+            compileUtilization >= testUtilization ? "compile" : "test");
+    }
+
+    private static double utilization(long busyNanos, int workers, long activeNanos) {
+        return activeNanos == 0 ? 0.0 : 100.0 * busyNanos / ((double) workers * activeNanos);
+    }
+}
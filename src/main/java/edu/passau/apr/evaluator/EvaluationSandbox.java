@@ -0,0 +1,86 @@
+package edu.passau.apr.evaluator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-worker compilation state: a private javac session plus private source and class
+ * output directories for the disk compile mode. A sandbox is used by one evaluation at a time,
+ * which lets several candidates be compiled and tested concurrently.
+ */
+final class EvaluationSandbox {
+    private final int id;
+    private final Path sourceDir;
+    private final Path outputDir;
+    private CompilerSession compilerSession;
+
+    EvaluationSandbox(int id, Path tempDir) throws IOException {
+        this.id = id;
+        this.sourceDir = Files.createDirectories(tempDir.resolve("sandbox-" + id).resolve("src"));
+        this.outputDir = Files.createDirectories(tempDir.resolve("sandbox-" + id).resolve("classes"));
+        this.compilerSession = openCompilerSession();
+    }
+
+    int getId() {
+        return id;
+    }
+
+    Path getSourceDir() {
+        return sourceDir;
+    }
+
+    Path getOutputDir() {
+        return outputDir;
+    }
+
+    /**
+     * Returns the javac session of this sandbox, or null when no system compiler is available.
+     */
+    CompilerSession getCompilerSession() {
+        return compilerSession;
+    }
+
+    /**
+     * Replaces the javac session, e.g. after a timed-out task may have left it in use.
+     */
+    void reopenCompilerSession() {
+        closeCompilerSession();
+        compilerSession = openCompilerSession();
+    }
+
+    void close() {
+        closeCompilerSession();
+    }
+
+    private CompilerSession openCompilerSession() {
+        List<File> classPath = new ArrayList<>();
+        String systemClasspath = System.getProperty("java.class.path");
+        if (systemClasspath != null) {
+            for (String entry : systemClasspath.split(java.util.regex.Pattern.quote(File.pathSeparator))) {
+                if (!entry.isEmpty()) {
+                    classPath.add(new File(entry));
+                }
+            }
+        }
+        try {
+            return CompilerSession.open(classPath);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void closeCompilerSession() {
+        if (compilerSession == null) {
+            return;
+        }
+        try {
+            compilerSession.close();
+        } catch (IOException ignored) {
+        }
+        compilerSession = null;
+    }
+}
@@ -0,0 +1,78 @@
+package edu.passau.apr.evaluator;
+
+import edu.passau.apr.model.FitnessResult;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU map from program hash to fitness result.
+ * Identical mutants (elite copies, crossover children equal to a parent, rejected mutations)
+ * are evaluated once and then served from here.
+ */
+public class FitnessCache {
+    private final int maxEntries;
+    private final Map<String, FitnessResult> entries;
+    private long hits;
+    private long misses;
+
+    public FitnessCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FitnessResult> eldest) {
+                return size() > FitnessCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result for the program hash, or null on a miss.
+     */
+    public synchronized FitnessResult get(String programHash) {
+        FitnessResult result = entries.get(programHash);
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether a result is cached, without counting a lookup or refreshing its recency.
+     */
+    synchronized boolean contains(String programHash) {
+        return entries.containsKey(programHash);
+    }
+
+    /**
+     * Counts a lookup that was answered without consulting the map, e.g. a duplicate within one batch.
+     */
+    synchronized void recordHit() {
+        hits++;
+    }
+
+    public synchronized void put(String programHash, FitnessResult result) {
+        entries.put(programHash, result);
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return String.format("Fitness cache: %d hits, %d misses (%.1f%% hit rate), %d/%d entries",
+            hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, entries.size(), maxEntries);
+    }
+}
@@ -1,6 +1,9 @@
 package edu.passau.apr.evaluator;
 
+import com.github.javaparser.StaticJavaParser;
+import edu.passau.apr.config.Config;
 import edu.passau.apr.model.FitnessResult;
+import edu.passau.apr.util.ProgramHash;
 import org.junit.platform.engine.discovery.DiscoverySelectors;
 import org.junit.platform.launcher.Launcher;
 import org.junit.platform.launcher.LauncherDiscoveryRequest;
@@ -8,26 +11,25 @@ import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
 import org.junit.platform.launcher.core.LauncherFactory;
 import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
 
-import javax.tools.JavaCompiler;
-import javax.tools.StandardJavaFileManager;
-import javax.tools.StandardLocation;
-import javax.tools.ToolProvider;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.io.PrintStream;
-import java.io.StringWriter;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.*;
 
@@ -37,14 +39,36 @@ import java.util.concurrent.*;
  */
 public class FitnessEvaluator {
 
-    private record CompilationResult(boolean success, String classPath) {}
-    private record TestExecutionResult(int passingCount, int failingCount, int totalCount,
-                                       Set<String> passedTests, Set<String> discoveredTests) {}
+    // classBytes holds the candidate's own classes: the main class and its nested classes.
+    // A non-zero schemaVariant means classBytes is a mutant schema shared by several candidates.
+    private record CompilationResult(boolean success, Map<String, byte[]> classBytes, int schemaVariant) {
+        CompilationResult(boolean success, Map<String, byte[]> classBytes) {
+            this(success, classBytes, 0);
+        }
+    }
+    private record TestExecutionResult(int passingCount, int failingCount, int totalCount, int skippedCount,
+                                       Set<String> passedTests, Set<String> discoveredTests,
+                                       Map<String, Long> elapsedNanos, int cutShortCount) {}
+    // A candidate on its way through the evaluation pipeline. A settled result skips the tests.
+    private record Candidate(String source, CompilationResult precompiled) {}
+    private record CompiledCandidate(String source, CompilationResult compilation, FitnessResult settled) {}
     // End-to-end evaluation should be long enough for compile + full suite execution.
     private static final int EVALUATION_TIMEOUT_SEC = 30;
     private static final int COMPILATION_TIMEOUT_SEC = 5;
     private static final int TEST_TIMEOUT_SEC = 2;
-    private static final Object STD_IO_LOCK = new Object();
+    // Calibrated timeouts: CALIBRATION_FACTOR times a test's slowest baseline run, never below the floor.
+    private static final int CALIBRATION_FACTOR = 10;
+    private static final long CALIBRATION_FLOOR_MS = 250;
+    private static final int BASELINE_OUTPUT_LIMIT = 64 * 1024;
+    // Each round drops the variants javac reported errors in; later phases may report more.
+    private static final int SCHEMA_COMPILE_ROUNDS = 3;
+    private static final int BATCH_COMPILE_ROUNDS = 3;
+    // Batch-compiled candidates live in apr_batch.c<i> until their classes are relocated.
+    private static final String BATCH_PACKAGE = "apr_batch.c";
+    // Returned when an evaluation times out or crashes; never cached since the cause may be transient.
+    private static final FitnessResult EVALUATION_FAILURE = new FitnessResult(0, 0, 0, 0.0, false, false);
+    // Compiled candidates each test worker may have waiting for it in the pipeline.
+    private static final int PIPELINE_QUEUE_PER_TEST_WORKER = 2;
 
     private final String buggySourcePath;
     private final String fixedSourcePath;
@@ -55,36 +79,130 @@ public class FitnessEvaluator {
     private final Path tempDir;
     private final String mainClassName;
     private final Path testClassesDir; // Pre-compiled test classes
+    private final boolean inMemoryCompilation;
+    private boolean batchCompilation;
+    private final int threads;
+    private final String stagedEvaluation;
+    private final String abortBelow;
+    private final long seed;
+    private final int testSampleSize;
+    private final int calibrationRuns;
+    private final Queue<EvaluationSandbox> idleSandboxes = new ConcurrentLinkedQueue<>();
+    private final List<EvaluationSandbox> sandboxes = new CopyOnWriteArrayList<>();
+    private final FitnessCache fitnessCache;
+    private final ProgramNormalizer normalizer;
+    // Hashes of candidates javac or the type filter rejected, or null when nobody asks for them.
+    private final Set<String> uncompilableHashes;
+    // Program hashes whose results had a test cut short; never written to the fitness store.
+    private final Set<String> cutShortHashes = ConcurrentHashMap.newKeySet();
+    private final RunawayGuard runawayGuard;
+    private final LoaderLeakMonitor loaderMonitor;
+    private FitnessStore fitnessStore;
+    private Map<String, byte[]> testClassBytes = Map.of();
+    private URLClassLoader sharedTestLoader;
+    private ForkedTestBackend forkedTestBackend;
+    private OperatorFastPath operatorFastPath;
+    private CoverageMap coverageMap;
+    private Map<String, BitSet> statementCoverage;
+    private MutantSchemata mutantSchemata;
+    private TypeCheckFilter typeFilter;
+    private ExecutorService evaluationPool;
+    private EvaluationPipeline<Candidate, CompiledCandidate> pipeline;
+    // Runs evaluations, compilations and individual tests with their deadlines on reusable threads.
+    // Replaced when the environment is recycled, which drops thread-locals candidates left on them.
+    private volatile Watchdog watchdog = new Watchdog("apr");
     private Set<String> positiveTestIds = Set.of();
     private Set<String> negativeTestIds = Set.of();
-    private Set<String> allTestIds = Set.of();
+    private Map<String, Double> testWeights = Map.of();
+    private TestSampler testSampler;
+    private volatile Set<String> allTestIds = Set.of();
+    private String baselineOutput = "";
+    private Map<String, Long> testTimeoutsMillis = Map.of();
+    private long evaluationTimeoutMillis = TimeUnit.SECONDS.toMillis(EVALUATION_TIMEOUT_SEC);
+    private volatile double eliteFitness = Double.NEGATIVE_INFINITY;
+    private volatile double worstEliteFitness = Double.NEGATIVE_INFINITY;
+    private volatile double tournamentCutoff = Double.NEGATIVE_INFINITY;
 
-    public FitnessEvaluator(String buggySourcePath, String fixedSourcePath, String testSourcePath, 
-                           List<String> testClassNames,
-                           double positiveTestWeight, double negativeTestWeight,
-                           String mainClassName) throws IOException {
+    public FitnessEvaluator(String buggySourcePath, String fixedSourcePath, String testSourcePath,
+                           List<String> testClassNames, String mainClassName,
+                           Config config) throws IOException {
         this.buggySourcePath = buggySourcePath;
         this.fixedSourcePath = fixedSourcePath;
         this.testSourcePath = testSourcePath;
         this.testClassNames = new ArrayList<>(testClassNames);
-        this.positiveTestWeight = positiveTestWeight;
-        this.negativeTestWeight = negativeTestWeight;
+        this.positiveTestWeight = config.getPositiveTestWeight();
+        this.negativeTestWeight = config.getNegativeTestWeight();
         this.mainClassName = mainClassName;
+        this.inMemoryCompilation = !Config.COMPILE_MODE_DISK.equalsIgnoreCase(config.getCompileMode());
+        this.threads = config.getThreads() > 0 ? config.getThreads() : Runtime.getRuntime().availableProcessors();
+        this.stagedEvaluation = config.getStagedEvaluation();
+        this.abortBelow = config.getAbortBelow();
+        this.seed = config.getSeed();
+        this.testSampleSize = config.getTestSampleSize();
+        this.calibrationRuns = config.getCalibrationRuns();
+        this.fitnessCache = config.getFitnessCacheSize() > 0 ? new FitnessCache(config.getFitnessCacheSize()) : null;
+        this.normalizer = config.isNormalizeCandidates() ? new ProgramNormalizer() : null;
+        this.uncompilableHashes = config.isNegativeEditCache() ? ConcurrentHashMap.newKeySet() : null;
+        // Worker JVMs are replaced when a candidate leaves threads behind, so the forked backend
+        // needs neither the guard nor its instrumentation; Main rejects step budgets there.
+        boolean forkedTests = Config.TEST_BACKEND_FORKED.equalsIgnoreCase(config.getTestBackend());
+        this.runawayGuard = !forkedTests && (config.isRunawayGuard() || config.getStepBudget() > 0)
+            ? new RunawayGuard(mainClassName, config.isRunawayGuard(), config.getStepBudget()) : null;
+        this.loaderMonitor = config.getMetaspaceLimitMb() > 0
+            ? new LoaderLeakMonitor(config.getMetaspaceLimitMb() * 1024L * 1024L) : null;
+        OutputRouter.install();
         this.tempDir = Files.createTempDirectory("apr-eval-");
         this.testClassesDir = tempDir.resolve("test-classes");
         Files.createDirectories(testClassesDir);
         
         precompileTests();
+        this.testClassBytes = ClassFiles.readTestClasses(testClassesDir, mainClassName);
+        if (forkedTests) {
+            int workers = config.getForkedWorkers() > 0 ? config.getForkedWorkers() : threads;
+            this.forkedTestBackend = new ForkedTestBackend(workers, testClassesDir, mainClassName,
+                this.testClassNames, TEST_TIMEOUT_SEC, TimeUnit.SECONDS.toMillis(EVALUATION_TIMEOUT_SEC));
+        }
         initializeFitnessPartitions();
+        if (runawayGuard != null) {
+            runawayGuard.calibrateStepBudgets();
+        }
+        if (config.isOperatorFastPath()) {
+            initializeOperatorFastPath();
+        }
+        if (Config.COMPILE_MODE_BATCH.equalsIgnoreCase(config.getCompileMode())) {
+            initializeBatchCompilation();
+        }
+        if (config.isCoverageSelection()
+                || !Config.FAULT_LOCALIZATION_FILE.equalsIgnoreCase(config.getFaultLocalization())) {
+            initializeCoverageMap(config.isCoverageSelection());
+        }
+        if (!Config.TYPE_FILTER_OFF.equalsIgnoreCase(config.getTypeFilter())) {
+            try {
+                this.typeFilter = new TypeCheckFilter(printedBaseSource(),
+                    Config.TYPE_FILTER_ON.equalsIgnoreCase(config.getTypeFilter()));
+            } catch (RuntimeException ignored) {
+            }
+        }
+        if (config.isMutantSchemata() && forkedTestBackend == null) {
+            try {
+                this.mutantSchemata = MutantSchemata.create(printedBaseSource(), mainClassName);
+            } catch (RuntimeException ignored) {
+            }
+        }
+        if (config.getCompileWorkers() > 0 || config.getTestWorkers() > 0) {
+            initializePipeline(Math.max(1, config.getCompileWorkers()), Math.max(1, config.getTestWorkers()));
+        }
+        if (loaderMonitor != null) {
+            loaderMonitor.markBaseline();
+        }
     }
     
     private void precompileTests() {
+        EvaluationSandbox sandbox = null;
         try {
-            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-            if (compiler == null) return;
-            
-            StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
-            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(testClassesDir.toFile()));
+            sandbox = acquireSandbox();
+            CompilerSession compilerSession = sandbox.getCompilerSession();
+            if (compilerSession == null) return;
             
             List<File> allFiles = new ArrayList<>();
             File sourceFile = new File(buggySourcePath);
@@ -104,36 +222,27 @@ public class FitnessEvaluator {
             }
             
             if (!allFiles.isEmpty()) {
-                String systemClasspath = System.getProperty("java.class.path");
-                List<String> options = new ArrayList<>();
-                if (systemClasspath != null && !systemClasspath.isEmpty()) {
-                    options.add("-cp");
-                    options.add(systemClasspath);
-                }
-
-                // Candidate compilation failures are expected during search; keep evaluator output quiet.
-                PrintWriter silentOutput = new PrintWriter(new StringWriter());
-                JavaCompiler.CompilationTask task = compiler.getTask(
-                    silentOutput, fileManager, null, options, null,
-                    fileManager.getJavaFileObjectsFromFiles(allFiles)
-                );
-                task.call();
-                silentOutput.close();
+                compilerSession.fileTask(allFiles, testClassesDir).call();
             }
-            
-            fileManager.close();
         } catch (Exception e) {
+        } finally {
+            releaseSandbox(sandbox);
         }
     }
 
     private void initializeFitnessPartitions() {
+        EvaluationSandbox sandbox = null;
         try {
-            CompilationResult baselineCompile = compile(new File(buggySourcePath), testSourcePath);
+            sandbox = acquireSandbox();
+            CompilationResult baselineCompile = compileSource(Files.readString(Paths.get(buggySourcePath)), sandbox);
             if (!baselineCompile.success) {
                 return;
             }
 
-            TestExecutionResult baseline = runTestsSilenced(baselineCompile.classPath);
+            OutputRouter.BoundedBuffer output = new OutputRouter.BoundedBuffer(BASELINE_OUTPUT_LIMIT);
+            TestExecutionResult baseline = OutputRouter.withSink(output,
+                () -> runTests(baselineCompile, ReflectiveTestRunner.StagePlan.NONE));
+            this.baselineOutput = output.contents();
             if (baseline.discoveredTests.isEmpty()) {
                 return;
             }
@@ -146,163 +255,1008 @@ public class FitnessEvaluator {
             this.allTestIds = Set.copyOf(discovered);
             this.positiveTestIds = Set.copyOf(positives);
             this.negativeTestIds = Set.copyOf(negatives);
+            Map<String, Double> weights = new HashMap<>();
+            positives.forEach(testId -> weights.put(testId, positiveTestWeight));
+            negatives.forEach(testId -> weights.put(testId, negativeTestWeight));
+            this.testWeights = Map.copyOf(weights);
+            TestSampler sampler = new TestSampler(seed, testSampleSize, positiveTestIds);
+            this.testSampler = sampler.isActive() ? sampler : null;
+            if (calibrationRuns > 0) {
+                calibrateTimeouts(baselineCompile, baseline);
+            }
+        } catch (Exception ignored) {
+        } finally {
+            releaseSandbox(sandbox);
+        }
+    }
+
+    /**
+     * Derives per-test timeouts from the baseline's own runtimes: each test may take
+     * {@link #CALIBRATION_FACTOR} times its slowest of {@code calibrationRuns} runs, at least
+     * {@link #CALIBRATION_FLOOR_MS} and at most the fixed {@link #TEST_TIMEOUT_SEC}. The evaluation
+     * deadline becomes the compile allowance plus twice the sum of all test timeouts, enough for a
+     * sampled run followed by the full-suite verification.
+     */
+    private void calibrateTimeouts(CompilationResult baselineCompile, TestExecutionResult firstRun) throws Exception {
+        Map<String, Long> slowestNanos = new HashMap<>(firstRun.elapsedNanos);
+        for (int run = 1; run < calibrationRuns; run++) {
+            TestExecutionResult repetition = OutputRouter.withSink(OutputRouter.DISCARD,
+                () -> runTests(baselineCompile, ReflectiveTestRunner.StagePlan.NONE));
+            repetition.elapsedNanos.forEach((testId, nanos) -> slowestNanos.merge(testId, nanos, Math::max));
+        }
+
+        long capMillis = TimeUnit.SECONDS.toMillis(TEST_TIMEOUT_SEC);
+        Map<String, Long> timeouts = new HashMap<>();
+        long totalMillis = 0;
+        for (String testId : allTestIds) {
+            long measuredMillis = TimeUnit.NANOSECONDS.toMillis(slowestNanos.getOrDefault(testId, TimeUnit.MILLISECONDS.toNanos(capMillis)));
+            long timeout = Math.min(capMillis, Math.max(CALIBRATION_FLOOR_MS, CALIBRATION_FACTOR * measuredMillis));
+            timeouts.put(testId, timeout);
+            totalMillis += timeout;
+        }
+        this.testTimeoutsMillis = Map.copyOf(timeouts);
+        this.evaluationTimeoutMillis = Math.min(TimeUnit.SECONDS.toMillis(EVALUATION_TIMEOUT_SEC),
+            TimeUnit.SECONDS.toMillis(COMPILATION_TIMEOUT_SEC) + 2 * totalMillis);
+        if (forkedTestBackend != null) {
+            forkedTestBackend.setRequestTimeoutMs(evaluationTimeoutMillis);
+        }
+    }
+
+    /**
+     * Runs every test alone against an instrumented copy of the original program and records the
+     * statements it executes. Tests whose outcome differs from the baseline, or that hit their
+     * timeout, get no coverage entry and always run. Without {@code selection} only the coverage
+     * itself is kept, for fault localization.
+     */
+    private void initializeCoverageMap(boolean selection) {
+        EvaluationSandbox sandbox = null;
+        try {
+            CoverageMap map = CoverageMap.create(printedBaseSource(), mainClassName);
+            if (map == null || allTestIds.isEmpty()) {
+                return;
+            }
+            sandbox = acquireSandbox();
+            CompilationResult instrumented = compileInMemory(map.instrumentedSource(), sandbox);
+            if (!instrumented.success) {
+                return;
+            }
+            Map<String, byte[]> classBytes = new HashMap<>(testClassBytes);
+            classBytes.putAll(instrumented.classBytes);
+            ReflectiveTestRunner runner = new ReflectiveTestRunner(watchdog, TEST_TIMEOUT_SEC);
+            for (String testId : allTestIds) {
+                ReflectiveTestRunner.StagePlan plan = new ReflectiveTestRunner.StagePlan(Set.of(), 0, Map.of(),
+                    Double.NEGATIVE_INFINITY, Set.of(testId), testTimeoutsMillis);
+                long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(
+                    testTimeoutsMillis.getOrDefault(testId, TimeUnit.SECONDS.toMillis(TEST_TIMEOUT_SEC)));
+                try (URLClassLoader classLoader = new ByteArrayClassLoader(new URL[0], sharedTestLoader(), classBytes)) {
+                    ReflectiveTestRunner.Report report = OutputRouter.withSink(OutputRouter.DISCARD,
+                        () -> runner.run(classLoader, testClassNames, plan));
+                    if (report.outcomes().size() != 1) {
+                        continue;
+                    }
+                    ReflectiveTestRunner.Outcome outcome = report.outcomes().get(0);
+                    if (outcome.passed() == positiveTestIds.contains(testId) && outcome.elapsedNanos() < timeoutNanos) {
+                        map.recordCoverage(testId, map.takeHits(classLoader));
+                    }
+                }
+            }
+            this.statementCoverage = map.statementCoverage();
+            if (selection) {
+                this.coverageMap = map;
+            }
+        } catch (Exception ignored) {
+        } finally {
+            releaseSandbox(sandbox);
+        }
+    }
+
+    /**
+     * Splits population evaluation into a compile stage and a test stage with their own workers.
+     * Compilation keeps its javac deadline; the tests of a candidate get the evaluation deadline.
+     */
+    private void initializePipeline(int compileWorkers, int testWorkers) {
+        this.pipeline = new EvaluationPipeline<>(compileWorkers, testWorkers,
+            testWorkers * PIPELINE_QUEUE_PER_TEST_WORKER,
+            candidate -> OutputRouter.withSink(OutputRouter.DISCARD, () -> compileCandidate(candidate)),
+            compiled -> OutputRouter.withSink(OutputRouter.DISCARD,
+                () -> watchdog.call(() -> testCandidate(compiled), evaluationTimeoutMillis, TimeUnit.MILLISECONDS)));
+    }
+
+    /**
+     * Compiles the original program once, printed the same way candidates are, as the base that
+     * single-operator mutants are derived from.
+     */
+    private void initializeOperatorFastPath() {
+        EvaluationSandbox sandbox = null;
+        try {
+            sandbox = acquireSandbox();
+            String baseSource = printedBaseSource();
+            CompilationResult baseCompile = compileSource(baseSource, sandbox);
+            if (baseCompile.success) {
+                this.operatorFastPath = new OperatorFastPath(baseSource, baseCompile.classBytes);
+            }
         } catch (Exception ignored) {
+        } finally {
+            releaseSandbox(sandbox);
+        }
+    }
+
+    /**
+     * Enables batch compilation if the original program compiles inside a synthetic package, which
+     * it cannot when it declares a package or uses classes from the unnamed package.
+     */
+    private void initializeBatchCompilation() {
+        try {
+            String baseSource = printedBaseSource();
+            if (StaticJavaParser.parse(baseSource).getPackageDeclaration().isPresent()) {
+                return;
+            }
+            this.batchCompilation = true;
+            CompilationResult baseCompile = compileBatch(List.of(baseSource)).get(baseSource);
+            this.batchCompilation = baseCompile != null && baseCompile.success;
+        } catch (Exception e) {
+            this.batchCompilation = false;
         }
     }
 
+    /**
+     * Returns the original program printed the way candidates are printed.
+     */
+    private String printedBaseSource() throws IOException {
+        return StaticJavaParser.parse(Files.readString(Paths.get(buggySourcePath))).toString();
+    }
+
     /**
      * Applies a patch to the source code and evaluates its fitness.
      */
     public FitnessResult evaluate(String patchedSource) {
-        ExecutorService executor = newDaemonSingleThreadExecutor("apr-eval");
-        Future<FitnessResult> future = executor.submit(() -> {
-            try {
-                String fileName = mainClassName + ".java";
-                Path modifiedSourceFile = tempDir.resolve(fileName);
+        return evaluate(patchedSource, null);
+    }
+
+    private FitnessResult evaluate(String patchedSource, CompilationResult precompiled) {
+        if (fitnessCache == null && fitnessStore == null) {
+            return evaluateUncached(patchedSource, precompiled);
+        }
+
+        String programHash = programHash(patchedSource);
+        FitnessResult known = lookupKnownResult(programHash);
+        if (known != null) {
+            return known;
+        }
+        FitnessResult result = evaluateUncached(patchedSource, precompiled);
+        rememberResult(programHash, result);
+        return result;
+    }
+
+    /**
+     * Returns what the buggy program and its tests printed during the baseline run (truncated).
+     */
+    public String getBaselineOutput() {
+        return baselineOutput;
+    }
+
+    /**
+     * Returns the in-memory fitness cache, or null when caching is disabled.
+     */
+    public FitnessCache getFitnessCache() {
+        return fitnessCache;
+    }
+
+    /**
+     * Attaches a persistent store consulted after the in-memory cache. The evaluator takes
+     * ownership and closes the store in {@link #cleanup()}.
+     */
+    public void setFitnessStore(FitnessStore fitnessStore) {
+        this.fitnessStore = fitnessStore;
+    }
 
-                Files.writeString(modifiedSourceFile, patchedSource);
-                CompilationResult compileResult = compile(modifiedSourceFile.toFile(), testSourcePath);
+    public FitnessStore getFitnessStore() {
+        return fitnessStore;
+    }
 
-                if (!compileResult.success) {
-                    return new FitnessResult(0, 0, 0, 0.0, false, false);
+    /**
+     * Sets the fitness of the current elite. With {@code --stagedEvaluation shortCircuit}, candidates
+     * whose negative tests show they cannot reach this fitness skip the positive tests.
+     */
+    public void setEliteFitness(double eliteFitness) {
+        this.eliteFitness = eliteFitness;
+    }
+
+    /**
+     * Sets the selection cutoffs of the previous generation: the fitness of the weakest elite and
+     * the lowest fitness that won a tournament. With {@code --abortBelow}, a candidate's test run
+     * stops once its reachable fitness falls below the chosen cutoff.
+     */
+    public void setSelectionCutoffs(double worstEliteFitness, double tournamentCutoff) {
+        this.worstEliteFitness = worstEliteFitness;
+        this.tournamentCutoff = tournamentCutoff;
+    }
+
+    /**
+     * Returns the forked worker pool, or null when tests run inside this JVM.
+     */
+    public ForkedTestBackend getForkedTestBackend() {
+        return forkedTestBackend;
+    }
+
+    /**
+     * Returns the operator fast path, or null when every candidate is compiled by javac.
+     */
+    public OperatorFastPath getOperatorFastPath() {
+        return operatorFastPath;
+    }
+
+    /**
+     * Describes the calibrated test timeouts, or returns null when the fixed timeouts apply.
+     */
+    public String getTimeoutSummary() {
+        if (testTimeoutsMillis.isEmpty()) {
+            return null;
+        }
+        long shortest = testTimeoutsMillis.values().stream().mapToLong(Long::longValue).min().orElse(0);
+        long longest = testTimeoutsMillis.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        return String.format("Calibrated test timeouts: %d-%d ms per test, %d ms per evaluation",
+            shortest, longest, evaluationTimeoutMillis);
+    }
+
+    /**
+     * Returns the coverage map used for test selection, or null when every test runs.
+     */
+    public CoverageMap getCoverageMap() {
+        return coverageMap;
+    }
+
+    /**
+     * Returns the statements each test executed on the original program, with bit {@code i} standing
+     * for the {@code i}-th element of {@code findAll(Statement.class)}, or null when no coverage was
+     * collected. Tests that behaved differently under instrumentation are missing.
+     */
+    public Map<String, BitSet> getStatementCoverage() {
+        return statementCoverage;
+    }
+
+    /**
+     * Returns the tests that fail on the original program.
+     */
+    public Set<String> getNegativeTestIds() {
+        return negativeTestIds;
+    }
+
+    /**
+     * Returns the static type filter, or null when every candidate goes straight to javac.
+     */
+    public TypeCheckFilter getTypeFilter() {
+        return typeFilter;
+    }
+
+    /**
+     * Returns the candidate normalizer, or null when candidates are cached under their own text.
+     */
+    public ProgramNormalizer getProgramNormalizer() {
+        return normalizer;
+    }
+
+    /**
+     * Returns the runaway thread guard, or null when candidate threads are only interrupted.
+     */
+    public RunawayGuard getRunawayGuard() {
+        return runawayGuard;
+    }
+
+    /**
+     * Returns the loader monitor, or null when loader leaks are not watched.
+     */
+    public LoaderLeakMonitor getLoaderMonitor() {
+        return loaderMonitor;
+    }
+
+    /**
+     * Returns the compile/test pipeline, or null when candidates are evaluated whole.
+     */
+    public EvaluationPipeline<?, ?> getEvaluationPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Returns the mutant schema builder, or null when candidates are compiled one by one.
+     */
+    public MutantSchemata getMutantSchemata() {
+        return mutantSchemata;
+    }
+
+    /**
+     * Evaluates a batch of candidates and returns their results in input order.
+     * With more than one thread the candidates are evaluated concurrently, each in its own
+     * sandbox. With a pipeline, compilation of later candidates overlaps with the tests of earlier
+     * ones. Like a sequential loop, the returned list ends at the first candidate that passes the
+     * full suite; results for later candidates are discarded.
+     */
+    public List<FitnessResult> evaluateAll(List<String> patchedSources) {
+        if (loaderMonitor != null && loaderMonitor.needsRecycling()) {
+            recycleEnvironment();
+        }
+        List<FitnessResult> results = new ArrayList<>(patchedSources.size());
+        Map<String, CompilationResult> precompiled = precompile(patchedSources);
+        if (pipeline == null && (threads <= 1 || patchedSources.size() <= 1)) {
+            for (String patchedSource : patchedSources) {
+                FitnessResult result = evaluate(patchedSource, precompiled.get(patchedSource));
+                results.add(result);
+                if (result.allTestsPass()) {
+                    break;
                 }
+            }
+            return results;
+        }
 
-                TestExecutionResult testResult = runTestsSilenced(compileResult.classPath);
+        // Identical programs within the batch are submitted once and share the result.
+        List<String> programHashes = new ArrayList<>(patchedSources.size());
+        Map<String, FitnessResult> known = new HashMap<>();
+        Map<String, Future<FitnessResult>> futures = new LinkedHashMap<>();
+        try {
+            ExecutorService pool = pipeline == null ? evaluationPool() : null;
+            for (String patchedSource : patchedSources) {
+                String programHash = programHash(patchedSource);
+                programHashes.add(programHash);
+                if (known.containsKey(programHash) || futures.containsKey(programHash)) {
+                    if (fitnessCache != null) {
+                        fitnessCache.recordHit();
+                    }
+                    continue;
+                }
+                FitnessResult cached = lookupKnownResult(programHash);
+                if (cached != null) {
+                    known.put(programHash, cached);
+                } else {
+                    futures.put(programHash, pool != null
+                        ? pool.submit(() -> evaluateUncached(patchedSource, precompiled.get(patchedSource)))
+                        : pipeline.submit(new Candidate(patchedSource, precompiled.get(patchedSource))));
+                }
+            }
+            for (String programHash : programHashes) {
+                FitnessResult result = known.get(programHash);
+                if (result == null) {
+                    result = awaitResult(futures.get(programHash));
+                    known.put(programHash, result);
+                    rememberResult(programHash, result);
+                }
+                results.add(result);
+                if (result.allTestsPass()) {
+                    break;
+                }
+            }
+        } finally {
+            futures.values().forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
 
-                int positivePassed = countIntersection(testResult.passedTests, positiveTestIds);
-                int negativePassed = countIntersection(testResult.passedTests, negativeTestIds);
-                double fitness = calculateFitness(positivePassed, negativePassed);
-                boolean allPass = testResult.failingCount == 0 && testResult.totalCount > 0 && testResult.passingCount > 0;
+    /**
+     * Compiles the not yet evaluated candidates of a batch ahead of their evaluation, first as a
+     * mutant schema and then the rest in one javac task. Candidates missing from the returned map
+     * are compiled on their own.
+     */
+    private Map<String, CompilationResult> precompile(List<String> patchedSources) {
+        if ((mutantSchemata == null && !batchCompilation) || patchedSources.size() <= 1) {
+            return Map.of();
+        }
+        Set<String> pending = new java.util.LinkedHashSet<>();
+        for (String patchedSource : patchedSources) {
+            if (fitnessCache == null || !fitnessCache.contains(programHash(patchedSource))) {
+                pending.add(patchedSource);
+            }
+        }
+        if (typeFilter != null && typeFilter.isEnforcing()) {
+            pending.removeIf(typeFilter::rejects);
+        }
+        Map<String, CompilationResult> precompiled = new HashMap<>(compileSchema(pending));
+        if (batchCompilation) {
+            pending.removeAll(precompiled.keySet());
+            if (pending.size() > 1) {
+                precompiled.putAll(compileBatch(pending));
+            }
+        }
+        return precompiled;
+    }
 
-                return new FitnessResult(
-                    testResult.passingCount,
-                    testResult.failingCount,
-                    testResult.totalCount,
-                    fitness,
-                    true,
-                    allPass
-                );
+    /**
+     * Compiles candidates as one mutant schema. Returns the schema's variant for every candidate
+     * it covers. Variants whose own methods fail to compile are dropped and the schema is rebuilt.
+     */
+    private Map<String, CompilationResult> compileSchema(Set<String> pending) {
+        if (mutantSchemata == null || pending.size() <= 1) {
+            return Map.of();
+        }
 
-            } catch (Exception e) {
-                return new FitnessResult(0, 0, 0, 0.0, false, false);
+        EvaluationSandbox sandbox = null;
+        try {
+            sandbox = acquireSandbox();
+            CompilerSession compilerSession = sandbox.getCompilerSession();
+            List<MutantSchemata.Variant> variants = mutantSchemata.variantsOf(pending);
+            for (int round = 0; compilerSession != null && variants != null && variants.size() > 1
+                    && round < SCHEMA_COMPILE_ROUNDS; round++) {
+                MutantSchemata.Schema schema = mutantSchemata.schemaOf(variants);
+                DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+                String schemaSource = runawayGuard != null ? runawayGuard.instrument(schema.source()) : schema.source();
+                if (runCompilationTask(compilerSession.inMemoryTask(mainClassName, schemaSource, diagnostics), sandbox)) {
+                    Map<String, byte[]> classBytes = Map.copyOf(compilerSession.drainClassBytes());
+                    Map<String, CompilationResult> compiled = new HashMap<>();
+                    for (MutantSchemata.Variant variant : variants) {
+                        compiled.put(variant.source(), new CompilationResult(true, classBytes, variant.id()));
+                    }
+                    mutantSchemata.recordSchema(variants.size());
+                    return compiled;
+                }
+                variants = mutantSchemata.withoutFailing(schema, diagnostics.getDiagnostics());
+                compilerSession = sandbox.getCompilerSession();
             }
-        });
+        } catch (Exception ignored) {
+        } finally {
+            releaseSandbox(sandbox);
+        }
+        return Map.of();
+    }
 
+    /**
+     * Compiles candidates in a single javac task, each moved into its own synthetic package so
+     * that their identically named classes do not clash; the emitted classes are relocated back
+     * afterwards. Candidates javac reports errors for are marked as not compiling and the rest are
+     * compiled again, since javac emits no classes at all once any unit has an error.
+     */
+    private Map<String, CompilationResult> compileBatch(Collection<String> patchedSources) {
+        Map<String, CompilationResult> compiled = new HashMap<>();
+        List<String> remaining = new ArrayList<>(patchedSources);
+        EvaluationSandbox sandbox = null;
         try {
-            return future.get(EVALUATION_TIMEOUT_SEC, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-            future.cancel(true);
-            return new FitnessResult(0, 0, 0, 0.0, false, false);
+            sandbox = acquireSandbox();
+            for (int round = 0; round < BATCH_COMPILE_ROUNDS && !remaining.isEmpty(); round++) {
+                CompilerSession compilerSession = sandbox.getCompilerSession();
+                if (compilerSession == null) {
+                    break;
+                }
+                Map<String, String> units = new LinkedHashMap<>();
+                for (int i = 0; i < remaining.size(); i++) {
+                    // Same line, so diagnostics and line numbers match the candidate's own.
+                    String unit = runawayGuard != null ? runawayGuard.instrument(remaining.get(i)) : remaining.get(i);
+                    units.put(BATCH_PACKAGE + i + "." + mainClassName, "package " + BATCH_PACKAGE + i + "; " + unit);
+                }
+                DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+                Callable<Boolean> task = compilerSession.inMemoryBatchTask(units, diagnostics);
+                if (runCompilationTask(task, sandbox, COMPILATION_TIMEOUT_SEC + remaining.size())) {
+                    Map<String, byte[]> classBytes = compilerSession.drainClassBytes();
+                    for (int i = 0; i < remaining.size(); i++) {
+                        String packagePrefix = BATCH_PACKAGE + i + ".";
+                        Map<String, byte[]> own = new LinkedHashMap<>();
+                        classBytes.forEach((name, bytes) -> {
+                            if (name.startsWith(packagePrefix)) {
+                                own.put(name, bytes);
+                            }
+                        });
+                        compiled.put(remaining.get(i), new CompilationResult(true, PackageRelocator.strip(own, packagePrefix)));
+                    }
+                    return compiled;
+                }
+
+                Set<Integer> failing = new HashSet<>();
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    if (diagnostic.getKind() != Diagnostic.Kind.ERROR) {
+                        continue;
+                    }
+                    Integer unit = diagnostic.getSource() == null ? null : batchUnitOf(diagnostic.getSource());
+                    if (unit == null) {
+                        return compiled;
+                    }
+                    failing.add(unit);
+                }
+                if (failing.isEmpty()) {
+                    break; // timed out or crashed; compile the rest one by one
+                }
+                List<String> next = new ArrayList<>();
+                for (int i = 0; i < remaining.size(); i++) {
+                    if (failing.contains(i)) {
+                        compiled.put(remaining.get(i), new CompilationResult(false, null));
+                    } else {
+                        next.add(remaining.get(i));
+                    }
+                }
+                remaining = next;
+            }
+        } catch (Exception ignored) {
+        } finally {
+            releaseSandbox(sandbox);
+        }
+        return compiled;
+    }
+
+    private static Integer batchUnitOf(JavaFileObject source) {
+        String path = source.toUri().getPath();
+        String marker = "/" + BATCH_PACKAGE.replace('.', '/');
+        int start = path.indexOf(marker);
+        if (start < 0) {
+            return null;
+        }
+        int end = path.indexOf('/', start + marker.length());
+        try {
+            return Integer.parseInt(path.substring(start + marker.length(), end));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private FitnessResult awaitResult(Future<FitnessResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EVALUATION_FAILURE;
+        } catch (ExecutionException e) {
+            return EVALUATION_FAILURE;
+        }
+    }
+
+    /**
+     * Returns the key a candidate is cached under, hashing its canonical form when normalization is on.
+     */
+    private String programHash(String patchedSource) {
+        return normalizer != null ? normalizer.programHash(patchedSource) : ProgramHash.of(patchedSource);
+    }
+
+    private FitnessResult lookupKnownResult(String programHash) {
+        FitnessResult result = fitnessCache != null ? fitnessCache.get(programHash) : null;
+        if (result == null && fitnessStore != null) {
+            result = fitnessStore.get(programHash);
+            if (result != null && fitnessCache != null) {
+                fitnessCache.put(programHash, result);
+            }
+        }
+        return result;
+    }
+
+    private void rememberResult(String programHash, FitnessResult result) {
+        // Bounded results depend on the elite at evaluation time, so they are never reused.
+        if (result == EVALUATION_FAILURE || result.precision() == FitnessResult.Precision.BOUNDED) {
+            return;
+        }
+        if (fitnessCache != null) {
+            fitnessCache.put(programHash, result);
+        }
+        // Samples depend on the run seed; the store is shared across runs and keeps exact results only.
+        if (fitnessStore != null && result.isExact() && !cutShortHashes.remove(programHash)) {
+            fitnessStore.put(programHash, result);
+        }
+    }
+
+    private synchronized ExecutorService evaluationPool() {
+        if (evaluationPool == null) {
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "apr-worker-" + System.nanoTime());
+                thread.setDaemon(true);
+                return thread;
+            };
+            evaluationPool = Executors.newFixedThreadPool(threads, threadFactory);
+        }
+        return evaluationPool;
+    }
+
+    /**
+     * Compiles and tests one candidate. Whatever the candidate prints is discarded.
+     * A precompiled schema variant, if given, replaces the compilation.
+     */
+    private FitnessResult evaluateUncached(String patchedSource, CompilationResult precompiled) {
+        Callable<FitnessResult> evaluation = () -> testCandidate(compileCandidate(new Candidate(patchedSource, precompiled)));
+
+        try {
+            return OutputRouter.withSink(OutputRouter.DISCARD,
+                () -> watchdog.call(evaluation, evaluationTimeoutMillis, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EVALUATION_FAILURE;
         } catch (Exception e) {
-            return new FitnessResult(0, 0, 0, 0.0, false, false);
+            return EVALUATION_FAILURE;
+        }
+    }
+
+    /**
+     * First half of an evaluation: compiles the candidate, or settles its fitness right away when
+     * the type filter or javac rejects it.
+     */
+    private CompiledCandidate compileCandidate(Candidate candidate) {
+        String patchedSource = candidate.source();
+        EvaluationSandbox sandbox = null;
+        try {
+            boolean flagged = typeFilter != null && typeFilter.rejects(patchedSource);
+            if (flagged && typeFilter.isEnforcing()) {
+                typeFilter.record(true, null);
+                recordUncompilable(patchedSource);
+                return new CompiledCandidate(patchedSource, null, new FitnessResult(0, 0, 0, 0.0, false, false));
+            }
+            CompilationResult compileResult = candidate.precompiled();
+            if (compileResult == null) {
+                sandbox = acquireSandbox();
+                compileResult = compileSource(patchedSource, sandbox);
+            }
+            if (typeFilter != null) {
+                typeFilter.record(flagged, compileResult.success);
+            }
+            if (!compileResult.success) {
+                recordUncompilable(patchedSource);
+                return new CompiledCandidate(patchedSource, null, new FitnessResult(0, 0, 0, 0.0, false, false));
+            }
+            return new CompiledCandidate(patchedSource, compileResult, null);
+        } catch (Exception e) {
+            return new CompiledCandidate(patchedSource, null, new FitnessResult(0, 0, 0, 0.0, false, false));
         } finally {
-            executor.shutdownNow();
+            releaseSandbox(sandbox);
         }
     }
 
-    private CompilationResult compile(File sourceFile, String testSourcePath) {
-        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        if (compiler == null) {
-            return new CompilationResult(false, null);
+    private void recordUncompilable(String patchedSource) {
+        if (uncompilableHashes != null) {
+            uncompilableHashes.add(ProgramHash.of(patchedSource));
         }
+    }
 
-        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
-        
+    /**
+     * Returns whether javac or the type filter rejected this exact candidate. A zero fitness alone
+     * does not tell: timeouts and crashes score the same.
+     */
+    public boolean failedToCompile(String patchedSource) {
+        return uncompilableHashes != null && uncompilableHashes.contains(ProgramHash.of(patchedSource));
+    }
+
+    /**
+     * Second half of an evaluation: runs the tests of a compiled candidate.
+     */
+    private FitnessResult testCandidate(CompiledCandidate candidate) {
+        if (candidate.settled() != null) {
+            return candidate.settled();
+        }
+        String patchedSource = candidate.source();
+        CompilationResult compileResult = candidate.compilation();
         try {
-            Path outputDir = tempDir.resolve("classes");
-            Files.createDirectories(outputDir);
-            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(outputDir.toFile()));
+            Set<String> unaffected = coverageMap != null
+                ? coverageMap.unaffectedTests(patchedSource, allTestIds) : Set.of();
+            if (testSampler == null) {
+                return toFitnessResult(checkCutShort(patchedSource,
+                    runSelectedTests(compileResult, Set.of(), unaffected)), 1.0);
+            }
 
-            List<File> sourceFiles = new ArrayList<>();
-            sourceFiles.add(sourceFile);
-            
-            // Suppress javac diagnostics for transient mutants to avoid log flooding.
-            PrintWriter silentOutput = new PrintWriter(new StringWriter());
-            JavaCompiler.CompilationTask sourceTask = compiler.getTask(
-                silentOutput, fileManager, null, null, null,
-                fileManager.getJavaFileObjectsFromFiles(sourceFiles)
-            );
-
-            ExecutorService executor = newDaemonSingleThreadExecutor("apr-compile");
-            Future<Boolean> future = executor.submit(sourceTask);
-            
-            boolean sourceSuccess = false;
-            try {
-                sourceSuccess = future.get(COMPILATION_TIMEOUT_SEC, TimeUnit.SECONDS);
-            } catch (TimeoutException e) {
-                future.cancel(true);
-            } catch (Exception ignored) {
-            } finally {
-                silentOutput.close();
-                executor.shutdownNow();
+            Set<String> sample = testSampler.sample(programHash(patchedSource));
+            Set<String> selectedTests = new HashSet<>(sample);
+            selectedTests.addAll(negativeTestIds);
+            double positiveScale = (double) positiveTestIds.size() / sample.size();
+            FitnessResult sampled = toFitnessResult(checkCutShort(patchedSource,
+                runSelectedTests(compileResult, selectedTests, unaffected)), positiveScale);
+            if (sampled.precision() != FitnessResult.Precision.SAMPLED
+                    || sampled.failingTests() > 0 || sampled.passingTests() == 0) {
+                return sampled;
             }
-            
-            fileManager.close();
-            
+            // A plausible patch: only the full suite may declare it a repair.
+            return toFitnessResult(checkCutShort(patchedSource,
+                runSelectedTests(compileResult, Set.of(), unaffected)), 1.0);
+
+        } catch (Exception e) {
+            return new FitnessResult(0, 0, 0, 0.0, false, false);
+        }
+    }
+
+    /**
+     * Remembers candidates with a test stopped by its timeout or step budget. Both depend on the
+     * run's settings and on the machine's load, so their results are kept out of the fitness store.
+     */
+    private TestExecutionResult checkCutShort(String patchedSource, TestExecutionResult testResult) {
+        if (testResult.cutShortCount > 0 && fitnessStore != null) {
+            cutShortHashes.add(programHash(patchedSource));
+        }
+        return testResult;
+    }
+
+    /**
+     * Turns a test run into a fitness result. With sampling, {@code positiveScale} extrapolates the
+     * positive-test share of the fitness from the sample to the whole positive suite, and a sampled
+     * run never counts as passing every test.
+     */
+    private FitnessResult toFitnessResult(TestExecutionResult testResult, double positiveScale) {
+        int positivePassed = countIntersection(testResult.passedTests, positiveTestIds);
+        int negativePassed = countIntersection(testResult.passedTests, negativeTestIds);
+        double fitness = positiveScale == 1.0
+            ? calculateFitness(positivePassed, negativePassed)
+            : positiveTestWeight * positivePassed * positiveScale + negativeTestWeight * negativePassed;
+        boolean allPass = testResult.failingCount == 0 && testResult.skippedCount == 0
+            && testResult.totalCount > 0 && testResult.passingCount > 0;
+
+        FitnessResult.Precision precision = FitnessResult.Precision.EXACT;
+        if (testResult.skippedCount > 0) {
+            precision = FitnessResult.Precision.BOUNDED;
+        } else if (positiveScale != 1.0) {
+            precision = FitnessResult.Precision.SAMPLED;
+        }
+        return new FitnessResult(
+            testResult.passingCount,
+            testResult.failingCount,
+            testResult.totalCount,
+            fitness,
+            true,
+            allPass && precision == FitnessResult.Precision.EXACT,
+            precision
+        );
+    }
+
+    private CompilationResult compileSource(String source, EvaluationSandbox sandbox) throws IOException {
+        if (operatorFastPath != null) {
+            Map<String, byte[]> classBytes = operatorFastPath.classBytesFor(source);
+            if (classBytes != null) {
+                return new CompilationResult(true, classBytes);
+            }
+        }
+        if (runawayGuard != null) {
+            source = runawayGuard.instrument(source);
+        }
+        if (inMemoryCompilation) {
+            return compileInMemory(source, sandbox);
+        }
+        Path modifiedSourceFile = sandbox.getSourceDir().resolve(mainClassName + ".java");
+        Files.writeString(modifiedSourceFile, source);
+        return compile(modifiedSourceFile.toFile(), sandbox);
+    }
+
+    /**
+     * Compiles the candidate without touching the disk: the source is fed as an in-memory
+     * compilation unit and the emitted bytecode is captured by {@link InMemoryFileManager}.
+     */
+    private CompilationResult compileInMemory(String source, EvaluationSandbox sandbox) {
+        CompilerSession compilerSession = sandbox.getCompilerSession();
+        if (compilerSession == null) {
+            return new CompilationResult(false, null);
+        }
+
+        boolean sourceSuccess = runCompilationTask(compilerSession.inMemoryTask(mainClassName, source), sandbox);
+        if (!sourceSuccess) {
+            return new CompilationResult(false, null);
+        }
+        return new CompilationResult(true, compilerSession.drainClassBytes());
+    }
+
+    private CompilationResult compile(File sourceFile, EvaluationSandbox sandbox) {
+        CompilerSession compilerSession = sandbox.getCompilerSession();
+        if (compilerSession == null) {
+            return new CompilationResult(false, null);
+        }
+
+        try {
+            Path outputDir = sandbox.getOutputDir();
+            boolean sourceSuccess = runCompilationTask(compilerSession.fileTask(List.of(sourceFile), outputDir), sandbox);
             if (!sourceSuccess) {
                 return new CompilationResult(false, null);
             }
 
-            String classpath = outputDir + ":" + testClassesDir.toString();
-            return new CompilationResult(true, classpath);
+            Map<String, byte[]> classBytes = ClassFiles.read(outputDir);
+            classBytes.keySet().removeIf(className -> !ClassFiles.belongsTo(className, mainClassName));
+            return new CompilationResult(true, classBytes);
 
         } catch (IOException e) {
             return new CompilationResult(false, null);
         }
     }
 
-    private TestExecutionResult runTests(String classPath) {
+    private boolean runCompilationTask(Callable<Boolean> task, EvaluationSandbox sandbox) {
+        return runCompilationTask(task, sandbox, COMPILATION_TIMEOUT_SEC);
+    }
+
+    private boolean runCompilationTask(Callable<Boolean> task, EvaluationSandbox sandbox, long timeoutSec) {
         try {
-            return runTestsWithJUnitLauncher(classPath);
-        } catch (Exception e) {
-            return new TestExecutionResult(0, 0, 0, Set.of(), Set.of());
+            return watchdog.call(task, timeoutSec, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // The abandoned javac task may still hold the sandbox's file manager; start over with a fresh one.
+            sandbox.reopenCompilerSession();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception ignored) {
+            return false;
         }
     }
 
-    private TestExecutionResult runTestsSilenced(String classPath) {
-        synchronized (STD_IO_LOCK) {
-            PrintStream originalOut = System.out;
-            PrintStream originalErr = System.err;
-            PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
-            try {
-                System.setOut(silent);
-                System.setErr(silent);
-                return runTests(classPath);
-            } finally {
-                System.setOut(originalOut);
-                System.setErr(originalErr);
-                silent.close();
+    private EvaluationSandbox acquireSandbox() throws IOException {
+        EvaluationSandbox sandbox = idleSandboxes.poll();
+        if (sandbox != null) {
+            return sandbox;
+        }
+        synchronized (sandboxes) {
+            sandbox = new EvaluationSandbox(sandboxes.size(), tempDir);
+            sandboxes.add(sandbox);
+        }
+        return sandbox;
+    }
+
+    private void releaseSandbox(EvaluationSandbox sandbox) {
+        if (sandbox != null) {
+            idleSandboxes.offer(sandbox);
+        }
+    }
+
+    /**
+     * Orders negative tests first when staged evaluation is on. In {@code shortCircuit} mode the
+     * positives are skipped unless enough negatives pass for the candidate to reach the elite:
+     * with every positive passing, fitness is at most {@code posW * |P| + negW * k} for k passing negatives.
+     * The must-beat score from {@code --abortBelow} is checked after every failing test.
+     */
+    private ReflectiveTestRunner.StagePlan stagePlan(Set<String> selectedTests, Set<String> reusedTests) {
+        boolean staged = !Config.STAGED_EVALUATION_OFF.equals(stagedEvaluation) && !negativeTestIds.isEmpty();
+        double mustBeat = mustBeatFitness();
+        if (!staged && mustBeat == Double.NEGATIVE_INFINITY && selectedTests.isEmpty() && testTimeoutsMillis.isEmpty()
+                && reusedTests.isEmpty()) {
+            return ReflectiveTestRunner.StagePlan.NONE;
+        }
+        Map<String, Double> weights = testWeights;
+        if (!selectedTests.isEmpty()) {
+            // Sampled positives stand in for the whole positive suite, so their weight is scaled up.
+            int sampledPositives = countIntersection(selectedTests, positiveTestIds);
+            double positiveScale = sampledPositives > 0 ? (double) positiveTestIds.size() / sampledPositives : 1.0;
+            weights = new HashMap<>();
+            for (String testId : selectedTests) {
+                double weight = testWeights.getOrDefault(testId, 0.0);
+                weights.put(testId, positiveTestIds.contains(testId) ? weight * positiveScale : weight);
             }
         }
+        int minNegativePasses = 0;
+        double bestWithoutFlips = positiveTestWeight * positiveTestIds.size();
+        if (staged && Config.STAGED_EVALUATION_SHORT_CIRCUIT.equals(stagedEvaluation)
+                && bestWithoutFlips < eliteFitness && negativeTestWeight > 0) {
+            double needed = Math.ceil((eliteFitness - bestWithoutFlips) / negativeTestWeight - 1e-9);
+            minNegativePasses = (int) Math.min(needed, negativeTestIds.size());
+        }
+        Set<String> firstStage = staged ? negativeTestIds : Set.of();
+        Set<String> toRun = selectedTests;
+        if (!reusedTests.isEmpty()) {
+            // Reused positives pass and reused negatives fail, so only the tests that run decide the rest.
+            toRun = new HashSet<>(selectedTests.isEmpty() ? allTestIds : selectedTests);
+            toRun.removeAll(reusedTests);
+            firstStage = new HashSet<>(firstStage);
+            firstStage.removeAll(reusedTests);
+            for (String testId : reusedTests) {
+                if (positiveTestIds.contains(testId)) {
+                    mustBeat -= weights.getOrDefault(testId, 0.0);
+                }
+            }
+        }
+        return new ReflectiveTestRunner.StagePlan(firstStage, minNegativePasses,
+            weights, mustBeat, toRun, testTimeoutsMillis);
     }
 
-    private TestExecutionResult runTestsWithJUnitLauncher(String classPath) {
-        // Use reflection-based approach as JUnit Platform Launcher requires more setup
-        return runTestsWithReflection(classPath);
+    /**
+     * Runs the selected tests, or all tests when none are selected, except those the coverage map
+     * found unaffected by the candidate; for those the baseline outcome is filled in.
+     */
+    private TestExecutionResult runSelectedTests(CompilationResult compilation, Set<String> selectedTests,
+                                                 Set<String> unaffected) {
+        Set<String> reused = new HashSet<>(selectedTests.isEmpty() ? allTestIds : selectedTests);
+        reused.retainAll(unaffected);
+        boolean runsAny = reused.size() < (selectedTests.isEmpty() ? allTestIds : selectedTests).size();
+        TestExecutionResult executed = runsAny
+            ? runTests(compilation, stagePlan(selectedTests, reused))
+            : new TestExecutionResult(0, 0, 0, 0, Set.of(), Set.of(), Map.of(), 0);
+        if (coverageMap == null || (runsAny && executed.totalCount == 0)) {
+            return executed; // the candidate's tests could not run at all
+        }
+        coverageMap.recordRun(executed.totalCount - executed.skippedCount, reused.size());
+        if (reused.isEmpty()) {
+            return executed;
+        }
+
+        Set<String> passedTests = new HashSet<>(executed.passedTests);
+        Set<String> discoveredTests = new HashSet<>(executed.discoveredTests);
+        int reusedPasses = 0;
+        for (String testId : reused) {
+            discoveredTests.add(testId);
+            if (positiveTestIds.contains(testId)) {
+                passedTests.add(testId);
+                reusedPasses++;
+            }
+        }
+        return new TestExecutionResult(
+            executed.passingCount + reusedPasses,
+            executed.failingCount + reused.size() - reusedPasses,
+            executed.totalCount + reused.size(),
+            executed.skippedCount,
+            Set.copyOf(passedTests),
+            Set.copyOf(discoveredTests),
+            executed.elapsedNanos,
+            executed.cutShortCount
+        );
     }
 
-    private TestExecutionResult runTestsWithReflection(String classPath) {
-        int passingCount = 0;
-        int failingCount = 0;
-        int totalCount = 0;
+    private double mustBeatFitness() {
+        if (testWeights.isEmpty()) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (Config.ABORT_BELOW_WORST_ELITE.equals(abortBelow)) {
+            return worstEliteFitness;
+        }
+        if (Config.ABORT_BELOW_TOURNAMENT.equals(abortBelow)) {
+            return tournamentCutoff;
+        }
+        return Double.NEGATIVE_INFINITY;
+    }
 
-        URLClassLoader classLoader = null;
+    private TestExecutionResult runTests(CompilationResult compilation, ReflectiveTestRunner.StagePlan plan) {
         try {
-            String systemClasspath = System.getProperty("java.class.path");
-            List<URL> urls = new ArrayList<>();
-            
-            String[] classPathEntries = classPath.split(java.util.regex.Pattern.quote(File.pathSeparator));
-            for (String entry : classPathEntries) {
-                if (!entry.isEmpty()) {
-                    try {
-                        File f = new File(entry);
-                        if (f.exists()) {
-                            urls.add(f.toURI().toURL());
-                        }
-                    } catch (Exception e) {
-                    }
-                }
+            return runTestsWithJUnitLauncher(compilation, plan);
+        } catch (Exception e) {
+            return new TestExecutionResult(0, 0, 0, 0, Set.of(), Set.of(), Map.of(), 0);
+        }
+    }
+
+    private TestExecutionResult runTestsWithJUnitLauncher(CompilationResult compilation, ReflectiveTestRunner.StagePlan plan) {
+        // Use reflection-based approach as JUnit Platform Launcher requires more setup
+        if (forkedTestBackend != null) {
+            return runTestsInForkedWorker(compilation, plan);
+        }
+        return runTestsWithReflection(compilation, plan);
+    }
+
+    /**
+     * Runs the tests in a throwaway loader that defines only the candidate and the test classes
+     * linking to it. JUnit and the rest of the classpath come from {@link #sharedTestLoader()},
+     * so they are loaded, linked and JIT-compiled once per run instead of once per candidate.
+     */
+    private TestExecutionResult runTestsWithReflection(CompilationResult compilation, ReflectiveTestRunner.StagePlan plan) {
+        Map<String, byte[]> classBytes = new HashMap<>(testClassBytes);
+        classBytes.putAll(compilation.classBytes);
+        try (URLClassLoader classLoader = new ByteArrayClassLoader(new URL[0], sharedTestLoader(), classBytes)) {
+            if (loaderMonitor != null) {
+                loaderMonitor.track(classLoader);
+            }
+            if (compilation.schemaVariant != 0) {
+                MutantSchemata.select(classLoader, mainClassName, compilation.schemaVariant);
             }
+            return toExecutionResult(new ReflectiveTestRunner(watchdog, TEST_TIMEOUT_SEC, runawayGuard)
+                .run(classLoader, testClassNames, plan));
+        } catch (Exception e) {
+            return new TestExecutionResult(0, 0, 0, 0, Set.of(), Set.of(), Map.of(), 0);
+        }
+    }
+
+    /**
+     * Replaces what candidates can pin their loaders to: the shared test loader and the statics of
+     * the classes it loaded, the watchdog's threads and their thread-locals, and the javac sessions
+     * of idle sandboxes. Runs between batches, when no candidate is being evaluated; tasks that
+     * timed out earlier and still hold a thread are interrupted once more.
+     */
+    private void recycleEnvironment() {
+        URLClassLoader retiredLoader;
+        synchronized (this) {
+            retiredLoader = sharedTestLoader;
+            sharedTestLoader = null;
+        }
+        if (retiredLoader != null) {
+            try {
+                retiredLoader.close();
+            } catch (IOException ignored) {
+            }
+        }
+        Watchdog retiredWatchdog = watchdog;
+        watchdog = new Watchdog("apr");
+        retiredWatchdog.close();
+        List<EvaluationSandbox> idle = new ArrayList<>();
+        EvaluationSandbox sandbox;
+        while ((sandbox = idleSandboxes.poll()) != null) {
+            sandbox.reopenCompilerSession();
+            idle.add(sandbox);
+        }
+        idleSandboxes.addAll(idle);
+        loaderMonitor.recycled();
+    }
+
+    /**
+     * Returns the loader for the tool's classpath (JUnit, opentest4j, ...), created on first use.
+     * Its parent is the bootstrap loader, so candidates see the same classes as before the split,
+     * but never the evaluator's own copies loaded by the application class loader.
+     */
+    private synchronized URLClassLoader sharedTestLoader() {
+        if (sharedTestLoader == null) {
+            List<URL> urls = new ArrayList<>();
+            String systemClasspath = System.getProperty("java.class.path");
             if (systemClasspath != null) {
                 String[] entries = systemClasspath.split(System.getProperty("path.separator", ":"));
                 for (String entry : entries) {
@@ -317,97 +1271,58 @@ public class FitnessEvaluator {
                     }
                 }
             }
-            
-            if (urls.isEmpty()) {
-                return new TestExecutionResult(0, 0, 0, Set.of(), Set.of());
-            }
-            
-            classLoader = new URLClassLoader(urls.toArray(new URL[0]), null);
-            Set<String> passedTests = new HashSet<>();
-            Set<String> discoveredTests = new HashSet<>();
+            sharedTestLoader = new URLClassLoader(urls.toArray(new URL[0]), null);
+        }
+        return sharedTestLoader;
+    }
 
-            for (String testClassName : testClassNames) {
-                try {
-                    Class<?> testClass = classLoader.loadClass(testClassName);
-                    
-                    // Find and run test methods
-                    java.lang.reflect.Method[] methods = testClass.getDeclaredMethods();
-                    Arrays.sort(methods, Comparator.comparing(java.lang.reflect.Method::getName));
-                    for (java.lang.reflect.Method method : methods) {
-                        // Check for @Test annotation by name (to avoid import issues)
-                        boolean hasTestAnnotation = false;
-                        try {
-                            for (java.lang.annotation.Annotation ann : method.getAnnotations()) {
-                                if (ann.annotationType().getSimpleName().equals("Test")) {
-                                    hasTestAnnotation = true;
-                                    break;
-                                }
-                            }
-                        } catch (Exception e) {
-                        }
-                        
-                        if (hasTestAnnotation) {
-                            String testId = testClassName + "#" + method.getName();
-                            discoveredTests.add(testId);
-                            totalCount++;
-                            try {
-                                java.lang.reflect.Constructor<?> constructor = testClass.getDeclaredConstructor();
-                                constructor.setAccessible(true);
-                                Object testInstance = constructor.newInstance();
-
-                                method.setAccessible(true);
-                                
-                                ExecutorService executor = newDaemonSingleThreadExecutor("apr-test");
-                                Future<?> future = executor.submit(() -> {
-                                    try {
-                                        method.invoke(testInstance);
-                                    } catch (Exception e) {
-                                        throw new RuntimeException(e);
-                                    }
-                                });
-                                
-                                try {
-                                    future.get(TEST_TIMEOUT_SEC, TimeUnit.SECONDS);
-                                    passingCount++;
-                                    passedTests.add(testId);
-                                } catch (TimeoutException e) {
-                                    future.cancel(true);
-                                    failingCount++;
-                                } catch (ExecutionException e) {
-                                    failingCount++;
-                                } finally {
-                                    executor.shutdownNow();
-                                }
-                            } catch (Exception e) {
-                                failingCount++;
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                }
-            }
+    /**
+     * Ships the candidate's bytecode to a pre-warmed worker JVM. A hung or leaking candidate
+     * costs that worker process, never the evaluator's own JVM.
+     */
+    private TestExecutionResult runTestsInForkedWorker(CompilationResult compilation, ReflectiveTestRunner.StagePlan plan) {
+        try {
+            return toExecutionResult(forkedTestBackend.run(compilation.classBytes, plan));
+        } catch (Exception e) {
+            return new TestExecutionResult(0, 0, 0, 0, Set.of(), Set.of(), Map.of(), 0);
+        }
+    }
 
-            if (allTestIds.isEmpty() && !discoveredTests.isEmpty()) {
-                allTestIds = Set.copyOf(discoveredTests);
+    private TestExecutionResult toExecutionResult(ReflectiveTestRunner.Report report) {
+        int passingCount = 0;
+        int failingCount = 0;
+        Set<String> passedTests = new HashSet<>();
+        Set<String> discoveredTests = new HashSet<>();
+        Map<String, Long> elapsedNanos = new HashMap<>();
+        int cutShortCount = 0;
+        for (ReflectiveTestRunner.Outcome outcome : report.outcomes()) {
+            if (outcome.cutShort()) {
+                cutShortCount++;
             }
-
-            return new TestExecutionResult(
-                passingCount,
-                failingCount,
-                totalCount,
-                Set.copyOf(passedTests),
-                Set.copyOf(discoveredTests)
-            );
-        } catch (Exception e) {
-            return new TestExecutionResult(0, 0, 0, Set.of(), Set.of());
-        } finally {
-            if (classLoader != null) {
-                try {
-                    classLoader.close();
-                } catch (Exception e) {
-                }
+            discoveredTests.add(outcome.testId());
+            elapsedNanos.put(outcome.testId(), outcome.elapsedNanos());
+            if (outcome.passed()) {
+                passingCount++;
+                passedTests.add(outcome.testId());
+            } else {
+                failingCount++;
             }
         }
+
+        if (allTestIds.isEmpty() && !discoveredTests.isEmpty()) {
+            allTestIds = Set.copyOf(discoveredTests);
+        }
+
+        return new TestExecutionResult(
+            passingCount,
+            failingCount,
+            report.outcomes().size() + report.skippedTests(),
+            report.skippedTests(),
+            Set.copyOf(passedTests),
+            Set.copyOf(discoveredTests),
+            Map.copyOf(elapsedNanos),
+            cutShortCount
+        );
     }
 
     private double calculateFitness(int positivePassedTests, int negativePassedTests) {
@@ -434,17 +1349,40 @@ public class FitnessEvaluator {
         return count;
     }
 
-    private ExecutorService newDaemonSingleThreadExecutor(String namePrefix) {
-        ThreadFactory threadFactory = runnable -> {
-            Thread thread = new Thread(runnable, namePrefix + "-" + System.nanoTime());
-            thread.setDaemon(true);
-            return thread;
-        };
-        return Executors.newSingleThreadExecutor(threadFactory);
-    }
-
-
     public void cleanup() {
+        synchronized (this) {
+            if (evaluationPool != null) {
+                evaluationPool.shutdownNow();
+                evaluationPool = null;
+            }
+        }
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        watchdog.close();
+        sandboxes.forEach(EvaluationSandbox::close);
+        synchronized (this) {
+            if (sharedTestLoader != null) {
+                try {
+                    sharedTestLoader.close();
+                } catch (IOException ignored) {
+                }
+                sharedTestLoader = null;
+            }
+        }
+        if (forkedTestBackend != null) {
+            forkedTestBackend.close();
+            forkedTestBackend = null;
+        }
+        if (fitnessStore != null) {
+            try {
+                fitnessStore.close();
+            } catch (IOException ignored) {
+            }
+            fitnessStore = null;
+        }
+        sandboxes.clear();
+        idleSandboxes.clear();
         try {
             Files.walk(tempDir)
                 .sorted((a, b) -> -a.compareTo(b))
@@ -0,0 +1,251 @@
+package edu.passau.apr.evaluator;
+
+import edu.passau.apr.config.Config;
+import edu.passau.apr.model.BenchmarkConfig;
+import edu.passau.apr.model.FitnessResult;
+import edu.passau.apr.util.ProgramHash;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Persistent fitness results shared by all runs, seeds and concurrent processes.
+ * <p>
+ * The file is an append-only sequence of fixed-size records behind a small header. Each record
+ * holds a benchmark key (hash of buggy source, tests, fault localization and fitness weights),
+ * the candidate program hash and the fitness tuple. New records are scanned through a read-only
+ * memory mapping. Appends and scans run under an exclusive or shared file lock, so several
+ * {@code Main} processes can use the same file.
+ */
+public class FitnessStore implements Closeable {
+    private static final int MAGIC = 0x41505246; // "APRF"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int BENCHMARK_KEY_SIZE = 16;
+    private static final int PROGRAM_HASH_SIZE = 32;
+    // benchmark key, program hash, passing, failing, total, fitness, flags (+ padding to 8 bytes)
+    private static final int RECORD_SIZE = 72;
+    private static final byte FLAG_COMPILES = 1;
+    private static final byte FLAG_ALL_PASS = 2;
+
+    private final FileChannel channel;
+    private final byte[] benchmarkKey;
+    private final Map<String, FitnessResult> results = new HashMap<>();
+    private long indexedEnd = HEADER_SIZE;
+    private long hits;
+    private long appended;
+
+    private FitnessStore(FileChannel channel, byte[] benchmarkKey) {
+        this.channel = channel;
+        this.benchmarkKey = benchmarkKey;
+    }
+
+    /**
+     * Opens (or creates) the store at the given path and indexes all records of the benchmark.
+     */
+    public static FitnessStore open(Path file, byte[] benchmarkKey) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FitnessStore store = new FitnessStore(channel, Arrays.copyOf(benchmarkKey, BENCHMARK_KEY_SIZE));
+        try {
+            store.initialize();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /**
+     * Identity of a benchmark for fitness purposes: the buggy source, every test source, the
+     * fault-localization file, the fitness weights and the settings that decide whether a
+     * candidate compiles or a test is stopped early. Changing any of them invalidates old records.
+     */
+    public static byte[] benchmarkKey(BenchmarkConfig benchmarkConfig, Config config) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(Files.readAllBytes(Paths.get(benchmarkConfig.getBuggySourcePath())));
+        Path testPath = Paths.get(benchmarkConfig.getTestSourcePath());
+        if (Files.isDirectory(testPath)) {
+            try (Stream<Path> paths = Files.walk(testPath)) {
+                for (Path testFile : paths.filter(Files::isRegularFile).sorted().toList()) {
+                    content.write(testFile.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+                    content.write(Files.readAllBytes(testFile));
+                }
+            }
+        } else if (Files.isRegularFile(testPath)) {
+            content.write(Files.readAllBytes(testPath));
+        }
+        Path faultLocalizationPath = Paths.get(benchmarkConfig.getFaultLocalizationPath());
+        if (Files.isRegularFile(faultLocalizationPath)) {
+            content.write(Files.readAllBytes(faultLocalizationPath));
+        }
+        String settings = config.getPositiveTestWeight() + "/" + config.getNegativeTestWeight()
+            + "/typeFilter=" + config.getTypeFilter() + "/calibrationRuns=" + config.getCalibrationRuns()
+            + "/stepBudget=" + config.getStepBudget();
+        content.write(settings.getBytes(StandardCharsets.UTF_8));
+        return ProgramHash.sha256(content.toByteArray());
+    }
+
+    /**
+     * Returns the stored result for the program hash, picking up records appended by other
+     * processes since the last lookup, or null if the candidate was never evaluated.
+     */
+    public synchronized FitnessResult get(String programHash) {
+        FitnessResult result = results.get(programHash);
+        if (result == null) {
+            try {
+                refresh();
+            } catch (IOException e) {
+                return null;
+            }
+            result = results.get(programHash);
+        }
+        if (result != null) {
+            hits++;
+        }
+        return result;
+    }
+
+    public synchronized void put(String programHash, FitnessResult result) {
+        if (results.containsKey(programHash)) {
+            return;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(benchmarkKey);
+        record.put(HexFormat.of().parseHex(programHash));
+        record.putInt(result.passingTests());
+        record.putInt(result.failingTests());
+        record.putInt(result.totalTests());
+        record.putDouble(result.fitness());
+        record.put((byte) ((result.compiles() ? FLAG_COMPILES : 0) | (result.allTestsPass() ? FLAG_ALL_PASS : 0)));
+        record.clear();
+
+        try {
+            FileLock lock = channel.lock();
+            try {
+                long end = alignedEnd(channel.size());
+                // Another process may have stored the same candidate since our last scan.
+                scan(end);
+                if (results.containsKey(programHash)) {
+                    return;
+                }
+                channel.write(record, end);
+                appended++;
+                // Index whatever other processes appended in the meantime, including our own record.
+                scan(end + RECORD_SIZE);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            // The store is an accelerator only; a failed append must not abort the search.
+            results.put(programHash, result);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Fitness store: %d hits, %d appended, %d records for this benchmark",
+            hits, appended, results.size());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void initialize() throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION);
+                header.clear();
+                channel.truncate(0);
+                channel.write(header, 0);
+                channel.force(true);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(8);
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    throw new IOException("Not a fitness store (or incompatible version)");
+                }
+            }
+            scan(alignedEnd(channel.size()));
+        } finally {
+            lock.release();
+        }
+    }
+
+    private void refresh() throws IOException {
+        FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+        try {
+            scan(alignedEnd(channel.size()));
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Indexes records in [indexedEnd, end). Must be called while holding a file lock.
+     */
+    private void scan(long end) throws IOException {
+        if (end <= indexedEnd) {
+            return;
+        }
+
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, indexedEnd, end - indexedEnd);
+        byte[] recordBenchmarkKey = new byte[BENCHMARK_KEY_SIZE];
+        byte[] programHash = new byte[PROGRAM_HASH_SIZE];
+        while (mapped.remaining() >= RECORD_SIZE) {
+            int recordStart = mapped.position();
+            mapped.get(recordBenchmarkKey);
+            if (!Arrays.equals(recordBenchmarkKey, benchmarkKey)) {
+                mapped.position(recordStart + RECORD_SIZE);
+                continue;
+            }
+            mapped.get(programHash);
+            int passing = mapped.getInt();
+            int failing = mapped.getInt();
+            int total = mapped.getInt();
+            double fitness = mapped.getDouble();
+            byte flags = mapped.get();
+            mapped.position(recordStart + RECORD_SIZE);
+
+            results.put(HexFormat.of().formatHex(programHash), new FitnessResult(
+                passing, failing, total, fitness,
+                (flags & FLAG_COMPILES) != 0,
+                (flags & FLAG_ALL_PASS) != 0
+            ));
+        }
+        indexedEnd = end;
+    }
+
+    /**
+     * End of the last complete record; a torn tail left by a crashed writer is overwritten.
+     */
+    private long alignedEnd(long size) {
+        long records = Math.max(0, size - HEADER_SIZE) / RECORD_SIZE;
+        return HEADER_SIZE + records * RECORD_SIZE;
+    }
+}
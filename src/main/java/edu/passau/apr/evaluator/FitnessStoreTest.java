@@ -0,0 +1,119 @@
+package edu.passau.apr.evaluator;
+
+import edu.passau.apr.model.FitnessResult;
+import edu.passau.apr.util.ProgramHash;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class FitnessStoreTest {
+
+    byte[] benchmark = ProgramHash.sha256("benchmark".getBytes());
+    byte[] otherBenchmark = ProgramHash.sha256("other benchmark".getBytes());
+    String first = ProgramHash.of("class A { }");
+    String second = ProgramHash.of("class B { }");
+    FitnessResult passing = new FitnessResult(5, 0, 5, 14.0, true, true);
+    FitnessResult failing = new FitnessResult(3, 2, 5, 4.5, true, false);
+    FitnessResult broken = new FitnessResult(0, 0, 5, 0.0, false, false);
+
+    static Path newStoreFile() throws IOException {
+        Path directory = Files.createTempDirectory("fitness-store");
+        directory.toFile().deleteOnExit();
+        Path file = directory.resolve("fitness.store");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    @Test
+    void roundTripsResults() throws Exception {
+        Path file = newStoreFile();
+        try (FitnessStore store = FitnessStore.open(file, benchmark)) {
+            assertNull(store.get(first));
+            store.put(first, failing);
+            store.put(second, broken);
+            assertEquals(failing, store.get(first));
+        }
+        try (FitnessStore store = FitnessStore.open(file, benchmark)) {
+            assertEquals(failing, store.get(first));
+            assertEquals(broken, store.get(second));
+            // A repeated put keeps the first record and does not grow the file.
+            long size = Files.size(file);
+            store.put(first, passing);
+            assertEquals(failing, store.get(first));
+            assertEquals(size, Files.size(file));
+        }
+    }
+
+    @Test
+    void picksUpRecordsOfAnotherWriter() throws Exception {
+        Path file = newStoreFile();
+        try (FitnessStore reader = FitnessStore.open(file, benchmark);
+             FitnessStore writer = FitnessStore.open(file, benchmark)) {
+            assertNull(reader.get(first));
+            writer.put(first, passing);
+            assertEquals(passing, reader.get(first));
+
+            // The reader indexes the writer's record before appending, so it does not store a duplicate.
+            long size = Files.size(file);
+            reader.put(first, failing);
+            assertEquals(size, Files.size(file));
+            assertEquals(passing, reader.get(first));
+        }
+    }
+
+    @Test
+    void ignoresRecordsOfAnotherBenchmark() throws Exception {
+        Path file = newStoreFile();
+        try (FitnessStore store = FitnessStore.open(file, benchmark);
+             FitnessStore other = FitnessStore.open(file, otherBenchmark)) {
+            store.put(first, passing);
+            assertNull(other.get(first));
+            other.put(first, broken);
+            assertEquals(broken, other.get(first));
+            assertEquals(passing, store.get(first));
+        }
+        try (FitnessStore store = FitnessStore.open(file, benchmark)) {
+            assertEquals(passing, store.get(first));
+        }
+    }
+
+    @Test
+    void overwritesTruncatedTrailingRecord() throws Exception {
+        Path file = newStoreFile();
+        try (FitnessStore store = FitnessStore.open(file, benchmark)) {
+            store.put(first, failing);
+        }
+        long complete = Files.size(file);
+        // A writer that crashed half-way through its record.
+        Files.write(file, new byte[30], StandardOpenOption.APPEND);
+
+        try (FitnessStore store = FitnessStore.open(file, benchmark)) {
+            assertEquals(failing, store.get(first));
+            assertNull(store.get(second));
+            store.put(second, passing);
+        }
+        // The 16-byte header and two whole records: the torn tail was overwritten.
+        assertEquals(2 * complete - 16, Files.size(file));
+        try (FitnessStore store = FitnessStore.open(file, benchmark)) {
+            assertEquals(failing, store.get(first));
+            assertEquals(passing, store.get(second));
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws Exception {
+        Path file = newStoreFile();
+        Files.write(file, "not a fitness store at all".getBytes());
+        try (FitnessStore store = FitnessStore.open(file, benchmark)) {
+            fail("opened " + store);
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("Not a fitness store"));
+        }
+    }
+}
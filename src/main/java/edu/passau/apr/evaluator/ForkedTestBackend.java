@@ -0,0 +1,202 @@
+package edu.passau.apr.evaluator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of pre-warmed worker JVMs running {@link TestWorkerMain}. Each candidate's bytecode is
+ * sent to an idle worker; a worker that times out, breaks the protocol or is left with test or
+ * candidate threads running is killed and replaced, so a misbehaving candidate cannot poison later
+ * evaluations. This quarantine takes the place of the in-process runaway guard.
+ */
+public final class ForkedTestBackend implements Closeable {
+    private final List<String> command;
+    private volatile long requestTimeoutMs;
+    private final Queue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+    private final Watchdog watchdog = new Watchdog("apr-fork");
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger recycled = new AtomicInteger();
+    private volatile boolean closed;
+
+    ForkedTestBackend(int workers, Path testClassesDir, String mainClassName, List<String> testClassNames,
+                      int testTimeoutSec, long requestTimeoutMs) throws IOException {
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-XX:+UseSerialGC");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(TestWorkerMain.class.getName());
+        command.add(testClassesDir.toString());
+        command.add(mainClassName);
+        command.add(Integer.toString(testTimeoutSec));
+        command.addAll(testClassNames);
+
+        // Start all workers up front; they boot in parallel while the first generation is compiled.
+        for (int i = 0; i < workers; i++) {
+            idleWorkers.offer(startWorker());
+        }
+    }
+
+    /**
+     * Changes how long one request may take before its worker is killed, e.g. after the
+     * evaluator calibrated its test timeouts.
+     */
+    void setRequestTimeoutMs(long requestTimeoutMs) {
+        this.requestTimeoutMs = requestTimeoutMs;
+    }
+
+    /**
+     * Runs the test suite against the given candidate classes in a worker JVM.
+     */
+    ReflectiveTestRunner.Report run(Map<String, byte[]> classBytes, ReflectiveTestRunner.StagePlan plan)
+            throws IOException, InterruptedException, TimeoutException {
+        Worker worker = idleWorkers.poll();
+        if (worker == null) {
+            worker = startWorker();
+        }
+
+        Worker current = worker;
+        try {
+            ReflectiveTestRunner.Report report = watchdog.call(() -> current.exchange(classBytes, plan),
+                requestTimeoutMs, TimeUnit.MILLISECONDS);
+            if (report.strandedThreads() > 0) {
+                // A test thread ignored interruption or the candidate left threads behind; only a
+                // fresh JVM gets rid of them.
+                recycle(worker);
+            } else {
+                release(worker);
+            }
+            return report;
+        } catch (TimeoutException e) {
+            // Killing the worker also unblocks the exchange thread still waiting on its pipe.
+            recycle(worker);
+            throw e;
+        } catch (ExecutionException e) {
+            recycle(worker);
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            recycle(worker);
+            throw e;
+        }
+    }
+
+    private Worker startWorker() throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Worker worker = new Worker(builder.start());
+        started.incrementAndGet();
+        return worker;
+    }
+
+    private void release(Worker worker) {
+        if (closed) {
+            worker.destroy();
+        } else {
+            idleWorkers.offer(worker);
+        }
+    }
+
+    private void recycle(Worker worker) {
+        worker.destroy();
+        recycled.incrementAndGet();
+        if (!closed) {
+            try {
+                idleWorkers.offer(startWorker());
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Worker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.destroy();
+        }
+        watchdog.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Forked test workers: %d started, %d recycled", started.get(), recycled.get());
+    }
+
+    private static final class Worker {
+        private final Process process;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        private boolean ready;
+
+        Worker(Process process) {
+            this.process = process;
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        ReflectiveTestRunner.Report exchange(Map<String, byte[]> classBytes, ReflectiveTestRunner.StagePlan plan)
+                throws IOException {
+            if (!ready) {
+                if (in.readInt() != TestWorkerMain.READY) {
+                    throw new IOException("Unexpected handshake from test worker");
+                }
+                ready = true;
+            }
+
+            out.writeInt(plan.firstStage().size());
+            for (String testId : plan.firstStage()) {
+                out.writeUTF(testId);
+            }
+            out.writeInt(plan.minFirstStagePasses());
+            out.writeInt(plan.testWeights().size());
+            for (Map.Entry<String, Double> weight : plan.testWeights().entrySet()) {
+                out.writeUTF(weight.getKey());
+                out.writeDouble(weight.getValue());
+            }
+            out.writeDouble(plan.mustBeat());
+            out.writeInt(plan.selectedTests().size());
+            for (String testId : plan.selectedTests()) {
+                out.writeUTF(testId);
+            }
+            out.writeInt(plan.testTimeoutsMillis().size());
+            for (Map.Entry<String, Long> timeout : plan.testTimeoutsMillis().entrySet()) {
+                out.writeUTF(timeout.getKey());
+                out.writeLong(timeout.getValue());
+            }
+            out.writeInt(classBytes.size());
+            for (Map.Entry<String, byte[]> entry : classBytes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+            out.flush();
+
+            int testCount = in.readInt();
+            List<ReflectiveTestRunner.Outcome> outcomes = new ArrayList<>(testCount);
+            for (int i = 0; i < testCount; i++) {
+                outcomes.add(new ReflectiveTestRunner.Outcome(in.readUTF(), in.readBoolean(), in.readLong(), in.readBoolean()));
+            }
+            return new ReflectiveTestRunner.Report(List.copyOf(outcomes), in.readInt(), in.readInt());
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package edu.passau.apr.evaluator;
+
+import javax.tools.SimpleJavaFileObject;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+
+/**
+ * Class file emitted by javac into a byte buffer.
+ */
+final class InMemoryClassFile extends SimpleJavaFileObject {
+    private final String className;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    InMemoryClassFile(String className) {
+        super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        this.className = className;
+    }
+
+    String getClassName() {
+        return className;
+    }
+
+    byte[] getBytes() {
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+        bytes.reset();
+        return bytes;
+    }
+}
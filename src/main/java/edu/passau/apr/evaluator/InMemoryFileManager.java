@@ -0,0 +1,41 @@
+package edu.passau.apr.evaluator;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Captures class output of a compilation task in memory.
+ * Reads (platform classes, classpath) are still served by the wrapped standard file manager.
+ */
+final class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+    private final Map<String, InMemoryClassFile> outputs = new LinkedHashMap<>();
+
+    InMemoryFileManager(StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                               JavaFileObject.Kind kind, FileObject sibling) {
+        InMemoryClassFile classFile = new InMemoryClassFile(className);
+        outputs.put(className, classFile);
+        return classFile;
+    }
+
+    /**
+     * Returns the bytecode produced since the last call and forgets it.
+     */
+    Map<String, byte[]> drainClassBytes() {
+        Map<String, byte[]> classBytes = new LinkedHashMap<>();
+        for (InMemoryClassFile classFile : List.copyOf(outputs.values())) {
+            classBytes.put(classFile.getClassName(), classFile.getBytes());
+        }
+        outputs.clear();
+        return classBytes;
+    }
+}
@@ -0,0 +1,21 @@
+package edu.passau.apr.evaluator;
+
+import javax.tools.SimpleJavaFileObject;
+import java.net.URI;
+
+/**
+ * Compilation unit whose source text is held in memory instead of being read from disk.
+ */
+final class InMemoryJavaSource extends SimpleJavaFileObject {
+    private final String source;
+
+    InMemoryJavaSource(String className, String source) {
+        super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+        this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+    }
+}
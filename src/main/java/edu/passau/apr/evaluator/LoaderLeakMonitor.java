@@ -0,0 +1,122 @@
+package edu.passau.apr.evaluator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watches for candidate class loaders that are never collected. Every candidate is tested in its
+ * own loader, which is closed afterwards; but a static cache in a shared class, a thread-local on
+ * a pooled thread or a thread that keeps running pins the loader and every class it defined, so
+ * metaspace grows and collections get slower as the search goes on.
+ *
+ * <p>The monitor holds a weak reference to each candidate loader and reads metaspace usage and the
+ * loaded class count through JMX. When metaspace has grown by more than the limit since the last
+ * baseline, or too many loaders are still uncollected, it forces a full collection to tell leaks
+ * from loaders that were simply not collected yet. If candidate loaders survive the collection and
+ * metaspace stays over the limit, or too many of them survive, the caller recycles the
+ * environment that pins the loaders. The loaded class count is only reported: it also grows with
+ * the tool's own classes, and the surviving loaders already tell which of the growth is leaked.</p>
+ */
+public final class LoaderLeakMonitor {
+
+    // Closed loaders still reachable that make a collection worth forcing, and that count as a leak after one.
+    private static final int PENDING_LOADER_LIMIT = 2_000;
+    private static final int LEAKED_LOADER_LIMIT = 32;
+
+    private final long metaspaceGrowthLimitBytes;
+    private final ReferenceQueue<ClassLoader> collected = new ReferenceQueue<>();
+    private final Set<Reference<ClassLoader>> live = ConcurrentHashMap.newKeySet();
+    private long initialMetaspaceBytes;
+    // Level and surviving loaders right after the last recycle; growth and leaks are counted from there.
+    private long baselineMetaspaceBytes;
+    private int baselineLeakedLoaders;
+    private long trackedLoaders;
+    private long forcedCollections;
+    private long recycles;
+
+    LoaderLeakMonitor(long metaspaceGrowthLimitBytes) {
+        this.metaspaceGrowthLimitBytes = metaspaceGrowthLimitBytes;
+    }
+
+    /**
+     * Measures the starting point once the evaluator is set up and javac has been loaded.
+     */
+    synchronized void markBaseline() {
+        initialMetaspaceBytes = metaspaceUsed();
+        baselineMetaspaceBytes = initialMetaspaceBytes;
+        baselineLeakedLoaders = live.size();
+    }
+
+    /**
+     * Starts watching a candidate loader, which is expected to become unreachable once closed.
+     */
+    void track(ClassLoader loader) {
+        live.add(new WeakReference<>(loader, collected));
+        synchronized (this) {
+            trackedLoaders++;
+        }
+    }
+
+    /**
+     * Whether pinned loaders have used up the metaspace allowance. Only called between batches,
+     * since it may force a full collection.
+     */
+    synchronized boolean needsRecycling() {
+        drain();
+        if (metaspaceUsed() - baselineMetaspaceBytes < metaspaceGrowthLimitBytes
+                && live.size() - baselineLeakedLoaders < PENDING_LOADER_LIMIT) {
+            return false;
+        }
+        System.gc();
+        forcedCollections++;
+        drain();
+        // Growth with every candidate loader collected comes from javac, the JIT or the parser,
+        // which a recycle cannot give back.
+        int leaked = live.size() - baselineLeakedLoaders;
+        boolean overLimit = metaspaceUsed() - baselineMetaspaceBytes >= metaspaceGrowthLimitBytes;
+        return (overLimit && leaked > 0) || leaked > LEAKED_LOADER_LIMIT;
+    }
+
+    /**
+     * Records that the environment was recycled and measures the new baseline. Loaders that
+     * survive even this are pinned by something outside the environment and are not counted again.
+     */
+    synchronized void recycled() {
+        recycles++;
+        System.gc();
+        drain();
+        baselineMetaspaceBytes = metaspaceUsed();
+        baselineLeakedLoaders = live.size();
+    }
+
+    private void drain() {
+        Reference<? extends ClassLoader> reference;
+        while ((reference = collected.poll()) != null) {
+            live.remove(reference);
+        }
+    }
+
+    private static long metaspaceUsed() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getName().equals("Metaspace") && pool.isValid()) {
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    @Override
+    public synchronized String toString() {
+        drain();
+        return String.format("Loader monitor: %d candidate loaders tracked, %d not collected; metaspace %.1f MB"
+                + " (%.1f MB at start), %d classes loaded; %d forced collections, %d environment recycles",
+            trackedLoaders, live.size(), metaspaceUsed() / 1048576.0, initialMetaspaceBytes / 1048576.0,
+            ManagementFactory.getClassLoadingMXBean().getLoadedClassCount(), forcedCollections, recycles);
+    }
+}
@@ -0,0 +1,319 @@
+package edu.passau.apr.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.MethodReferenceExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.ReturnStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import com.github.javaparser.ast.stmt.SwitchStmt;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges candidates into one "schema" program so that a whole batch costs a single javac run.
+ * Every method a candidate rewrites becomes a private variant method, and the original method
+ * first dispatches on a static variant id:
+ *
+ * <pre>
+ * int m(int x) {
+ *     switch (__AprVariant.id) {
+ *         case 3: return m$apr3(x);
+ *     }
+ *     ... original body ...
+ * }
+ * </pre>
+ *
+ * Only candidates that differ from the original in the bodies of the main class's own methods are
+ * merged; anything else (fields, constructors, nested classes, signatures) is compiled on its own.
+ * So is a candidate that rewrites a method which may call itself, directly or through other
+ * methods: the dispatch adds a stack frame to every call of a rewritten method, so a deep
+ * recursion could overflow the stack in the schema where the candidate alone would not.
+ * Each variant runs in its own class loader with the id set before the first test, so concurrent
+ * variants never share the static field. The id lives in a nested holder class, so setting it does
+ * not run the main class's static initializers ahead of time.
+ */
+public final class MutantSchemata {
+
+    static final String VARIANT_HOLDER = "__AprVariant";
+    private static final String VARIANT_FIELD = "id";
+    private static final String VARIANT_MARKER = "$apr";
+
+    /**
+     * A candidate that fits the schema.
+     *
+     * @param source        the candidate program, as handed to the evaluator
+     * @param id            variant id, starting at 1; 0 runs the original program
+     * @param changedBodies rewritten bodies keyed by the method's position in the main class
+     */
+    record Variant(String source, int id, Map<Integer, BlockStmt> changedBodies) {}
+
+    /**
+     * A schema program and, per variant id, the lines its variant methods occupy.
+     */
+    record Schema(String source, List<Variant> variants, Map<Integer, List<int[]>> linesByVariant) {}
+
+    private final CompilationUnit base;
+    private final String mainClassName;
+    private final String baseSkeleton;
+    private final AtomicInteger schemas = new AtomicInteger();
+    private final AtomicInteger merged = new AtomicInteger();
+    private final AtomicInteger excluded = new AtomicInteger();
+
+    private MutantSchemata(CompilationUnit base, String mainClassName) {
+        this.base = base;
+        this.mainClassName = mainClassName;
+        this.baseSkeleton = skeleton(base.clone(), new ArrayList<>());
+    }
+
+    /**
+     * Returns a schema builder for the original program, or null when its main class is not a
+     * plain class or already uses the schema's reserved names.
+     */
+    static MutantSchemata create(String baseSource, String mainClassName) {
+        if (baseSource.contains(VARIANT_HOLDER) || baseSource.contains(VARIANT_MARKER)) {
+            return null;
+        }
+        CompilationUnit base = StaticJavaParser.parse(baseSource);
+        Optional<ClassOrInterfaceDeclaration> mainClass = base.getClassByName(mainClassName);
+        if (mainClass.isEmpty() || mainClass.get().isInterface()) {
+            return null;
+        }
+        return new MutantSchemata(base, mainClassName);
+    }
+
+    /**
+     * Returns the candidates that differ from the original only inside method bodies of the main
+     * class, numbered from 1. Candidates that do not parse, change anything else or rewrite a
+     * recursive method are left out.
+     */
+    List<Variant> variantsOf(Collection<String> candidateSources) {
+        List<Variant> variants = new ArrayList<>();
+        for (String source : candidateSources) {
+            try {
+                List<Optional<BlockStmt>> bodies = new ArrayList<>();
+                if (!baseSkeleton.equals(skeleton(StaticJavaParser.parse(source), bodies))) {
+                    continue;
+                }
+                List<MethodDeclaration> baseMethods = mainClass(base).getMethods();
+                Map<Integer, BlockStmt> changed = new HashMap<>();
+                for (int i = 0; i < bodies.size(); i++) {
+                    Optional<BlockStmt> body = bodies.get(i);
+                    if (body.isPresent() && !body.equals(baseMethods.get(i).getBody())) {
+                        changed.put(i, body.get());
+                    }
+                }
+                if (rewritesRecursiveMethod(baseMethods, changed)) {
+                    continue;
+                }
+                variants.add(new Variant(source, variants.size() + 1, changed));
+            } catch (RuntimeException ignored) {
+            }
+        }
+        return variants;
+    }
+
+    /**
+     * Whether a rewritten method may reach itself through calls, in the candidate's version of the
+     * program. Calls are matched by name only, across every method of the file, which can only
+     * leave out more candidates than necessary.
+     */
+    private boolean rewritesRecursiveMethod(List<MethodDeclaration> baseMethods, Map<Integer, BlockStmt> changed) {
+        Map<MethodDeclaration, Node> bodies = new IdentityHashMap<>();
+        for (Map.Entry<Integer, BlockStmt> entry : changed.entrySet()) {
+            bodies.put(baseMethods.get(entry.getKey()), entry.getValue());
+        }
+        Map<String, Set<String>> callees = new HashMap<>();
+        for (MethodDeclaration method : base.findAll(MethodDeclaration.class)) {
+            Set<String> called = callees.computeIfAbsent(method.getNameAsString(), name -> new HashSet<>());
+            Node body = bodies.containsKey(method) ? bodies.get(method) : method.getBody().orElse(null);
+            if (body != null) {
+                body.findAll(MethodCallExpr.class).forEach(call -> called.add(call.getNameAsString()));
+                body.findAll(MethodReferenceExpr.class).forEach(reference -> called.add(reference.getIdentifier()));
+            }
+        }
+        for (Integer index : changed.keySet()) {
+            String start = baseMethods.get(index).getNameAsString();
+            Set<String> seen = new HashSet<>();
+            Deque<String> pending = new ArrayDeque<>(callees.get(start));
+            while (!pending.isEmpty()) {
+                String name = pending.pop();
+                if (name.equals(start)) {
+                    return true;
+                }
+                if (seen.add(name) && callees.containsKey(name)) {
+                    pending.addAll(callees.get(name));
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the schema program for the given variants.
+     */
+    Schema schemaOf(List<Variant> variants) {
+        CompilationUnit schema = base.clone();
+        ClassOrInterfaceDeclaration mainClass = mainClass(schema);
+        ClassOrInterfaceDeclaration holder = new ClassOrInterfaceDeclaration(
+            new NodeList<>(Modifier.staticModifier(), Modifier.finalModifier()), false, VARIANT_HOLDER);
+        holder.addField("int", VARIANT_FIELD, Modifier.Keyword.STATIC);
+        mainClass.addMember(holder);
+
+        List<MethodDeclaration> methods = new ArrayList<>(mainClass.getMethods());
+        for (int i = 0; i < methods.size(); i++) {
+            MethodDeclaration method = methods.get(i);
+            SwitchStmt dispatch = new SwitchStmt()
+                .setSelector(new FieldAccessExpr(new NameExpr(VARIANT_HOLDER), VARIANT_FIELD));
+            for (Variant variant : variants) {
+                BlockStmt body = variant.changedBodies().get(i);
+                if (body == null) {
+                    continue;
+                }
+                String variantName = method.getNameAsString() + VARIANT_MARKER + variant.id();
+                MethodDeclaration variantMethod = method.clone()
+                    .setName(variantName)
+                    .setAnnotations(new NodeList<>())
+                    .setBody(body.clone());
+                variantMethod.getModifiers().removeIf(modifier -> switch (modifier.getKeyword()) {
+                    case PUBLIC, PROTECTED, PRIVATE, ABSTRACT, FINAL -> true;
+                    default -> false;
+                });
+                variantMethod.addModifier(Modifier.Keyword.PRIVATE);
+                mainClass.addMember(variantMethod);
+
+                NodeList<Expression> arguments = new NodeList<>();
+                for (Parameter parameter : method.getParameters()) {
+                    arguments.add(new NameExpr(parameter.getNameAsString()));
+                }
+                MethodCallExpr call = new MethodCallExpr(variantName, arguments.toArray(new Expression[0]));
+                NodeList<Statement> statements = method.getType().isVoidType()
+                    ? new NodeList<>(new ExpressionStmt(call), new ReturnStmt())
+                    : new NodeList<>(new ReturnStmt(call));
+                dispatch.getEntries().add(new SwitchEntry(
+                    new NodeList<>(new IntegerLiteralExpr(String.valueOf(variant.id()))),
+                    SwitchEntry.Type.STATEMENT_GROUP, statements));
+            }
+            if (!dispatch.getEntries().isEmpty() && method.getBody().isPresent()) {
+                method.getBody().get().getStatements().addFirst(dispatch);
+            }
+        }
+
+        String source = schema.toString();
+        // Re-parse the printed schema to learn where each variant method ended up.
+        Map<Integer, List<int[]>> linesByVariant = new HashMap<>();
+        for (MethodDeclaration method : mainClass(StaticJavaParser.parse(source)).getMethods()) {
+            String name = method.getNameAsString();
+            int marker = name.lastIndexOf(VARIANT_MARKER);
+            if (marker < 0 || method.getRange().isEmpty()) {
+                continue;
+            }
+            int id = Integer.parseInt(name.substring(marker + VARIANT_MARKER.length()));
+            linesByVariant.computeIfAbsent(id, key -> new ArrayList<>())
+                .add(new int[] {method.getRange().get().begin.line, method.getRange().get().end.line});
+        }
+        return new Schema(source, List.copyOf(variants), linesByVariant);
+    }
+
+    /**
+     * Drops the variants whose methods hold a compile error. Returns null when an error lies
+     * outside every variant method, so the schema as a whole cannot be repaired.
+     */
+    List<Variant> withoutFailing(Schema schema, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        Set<Integer> failing = new HashSet<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            if (diagnostic.getKind() != Diagnostic.Kind.ERROR) {
+                continue;
+            }
+            Integer id = variantAt(schema, diagnostic.getLineNumber());
+            if (id == null) {
+                return null;
+            }
+            failing.add(id);
+        }
+        if (failing.isEmpty()) {
+            return null;
+        }
+        excluded.addAndGet(failing.size());
+        List<Variant> remaining = new ArrayList<>(schema.variants());
+        remaining.removeIf(variant -> failing.contains(variant.id()));
+        return remaining;
+    }
+
+    void recordSchema(int variants) {
+        schemas.incrementAndGet();
+        merged.addAndGet(variants);
+    }
+
+    /**
+     * Activates a variant in a fresh loader holding the schema classes.
+     */
+    static void select(ClassLoader loader, String mainClassName, int variant) throws ReflectiveOperationException {
+        Field field = loader.loadClass(mainClassName + "$" + VARIANT_HOLDER).getDeclaredField(VARIANT_FIELD);
+        field.setAccessible(true);
+        field.setInt(null, variant);
+    }
+
+    private static Integer variantAt(Schema schema, long line) {
+        for (Map.Entry<Integer, List<int[]>> entry : schema.linesByVariant().entrySet()) {
+            for (int[] range : entry.getValue()) {
+                if (line >= range[0] && line <= range[1]) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Strips the main class's method bodies from {@code unit}, collecting them in declaration order,
+     * and returns what remains printed.
+     */
+    private String skeleton(CompilationUnit unit, List<Optional<BlockStmt>> bodies) {
+        ClassOrInterfaceDeclaration mainClass = mainClass(unit);
+        for (MethodDeclaration method : mainClass.getMethods()) {
+            bodies.add(method.getBody());
+            if (method.getBody().isPresent()) {
+                method.setBody(new BlockStmt());
+            }
+        }
+        return unit.toString();
+    }
+
+    private ClassOrInterfaceDeclaration mainClass(CompilationUnit unit) {
+        return unit.getClassByName(mainClassName).orElseThrow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Mutant schemata: %d schemas compiled for %d candidates, %d excluded for compile errors",
+            schemas.get(), merged.get(), excluded.get());
+    }
+}
@@ -0,0 +1,273 @@
+package edu.passau.apr.evaluator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Produces bytecode for single-operator mutants without running javac. The original program is
+ * compiled once; a candidate that differs from it by one relational operator, or by one removed
+ * unary minus, on a single line is derived by patching the matching opcode in a copy of the
+ * original class bytes. Whenever the edit cannot be tied to exactly one instruction the caller
+ * compiles the candidate normally.
+ *
+ * <p>Conditional branches are rewritten in place, so instruction offsets, jump targets and the
+ * StackMapTable stay valid. A removed negation becomes a {@code nop}.</p>
+ */
+public final class OperatorFastPath {
+
+    private enum Relation {
+        EQ, NE, LT, GE, GT, LE;
+
+        Relation negate() {
+            return values()[ordinal() ^ 1];
+        }
+
+        boolean isEquality() {
+            return this == EQ || this == NE;
+        }
+
+        static Relation of(String operator) {
+            return switch (operator) {
+                case "==" -> EQ;
+                case "!=" -> NE;
+                case "<" -> LT;
+                case ">=" -> GE;
+                case ">" -> GT;
+                case "<=" -> LE;
+                default -> null;
+            };
+        }
+    }
+
+    private record Site(String className, ClassFileCode.Instruction instruction) {}
+
+    private static final Pattern RELATIONAL_OPERATOR = Pattern.compile("(?<= )(<=|>=|==|!=|<|>)(?= )");
+    private static final String OPERATOR_CHARS = "<>=!";
+
+    private static final int IFEQ = 0x99;
+    private static final int IF_ICMPEQ = 0x9f;
+    private static final int IF_ACMPEQ = 0xa5;
+    private static final int IFNULL = 0xc6;
+    private static final int IFNONNULL = 0xc7;
+    private static final int INEG = 0x74;
+    private static final int DNEG = 0x77;
+    private static final int NOP = 0x00;
+
+    private final String[] baseLines;
+    private final Map<String, byte[]> baseClasses;
+    private final Map<Integer, List<Site>> sitesByLine = new HashMap<>();
+    private final AtomicInteger rewritten = new AtomicInteger();
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger fellBack = new AtomicInteger();
+
+    /**
+     * @param baseSource  the original program exactly as candidates are printed
+     * @param baseClasses bytecode of {@code baseSource}, compiled with line numbers
+     */
+    OperatorFastPath(String baseSource, Map<String, byte[]> baseClasses) {
+        this.baseLines = baseSource.split("\n", -1);
+        this.baseClasses = Map.copyOf(baseClasses);
+        for (Map.Entry<String, byte[]> entry : baseClasses.entrySet()) {
+            for (ClassFileCode.Instruction instruction : ClassFileCode.instructions(entry.getValue())) {
+                if (instruction.line() > 0) {
+                    sitesByLine.computeIfAbsent(instruction.line(), line -> new ArrayList<>())
+                        .add(new Site(entry.getKey(), instruction));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the candidate's class bytes, or null if it has to be compiled by javac.
+     */
+    Map<String, byte[]> classBytesFor(String candidateSource) {
+        Map<String, byte[]> result = derive(candidateSource);
+        if (result == null) {
+            fellBack.incrementAndGet();
+        }
+        return result;
+    }
+
+    private Map<String, byte[]> derive(String candidateSource) {
+        String[] lines = candidateSource.split("\n", -1);
+        if (lines.length != baseLines.length) {
+            return null;
+        }
+        int changedLine = -1;
+        for (int i = 0; i < lines.length; i++) {
+            if (!lines[i].equals(baseLines[i])) {
+                if (changedLine >= 0) {
+                    return null;
+                }
+                changedLine = i;
+            }
+        }
+        if (changedLine < 0) {
+            reused.incrementAndGet();
+            return copyOfBase();
+        }
+
+        String before = baseLines[changedLine];
+        String after = lines[changedLine];
+        List<Site> sites = sitesByLine.getOrDefault(changedLine + 1, List.of());
+        // One character shorter is either a removed minus or a swap such as <= to <.
+        Map<String, byte[]> patched = after.length() == before.length() - 1
+            ? removeNegation(before, after, sites) : null;
+        if (patched == null) {
+            patched = swapRelation(before, after, sites);
+        }
+        if (patched != null) {
+            rewritten.incrementAndGet();
+        }
+        return patched;
+    }
+
+    private Map<String, byte[]> swapRelation(String before, String after, List<Site> sites) {
+        int prefix = 0;
+        int limit = Math.min(before.length(), after.length());
+        while (prefix < limit && before.charAt(prefix) == after.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && before.charAt(before.length() - 1 - suffix) == after.charAt(after.length() - 1 - suffix)) {
+            suffix++;
+        }
+        int start = prefix;
+        while (start > 0 && OPERATOR_CHARS.indexOf(before.charAt(start - 1)) >= 0) {
+            start--;
+        }
+        String oldOperator = operatorAt(before, start, before.length() - suffix);
+        String newOperator = operatorAt(after, start, after.length() - suffix);
+        if (oldOperator == null || newOperator == null) {
+            return null;
+        }
+
+        // The line must hold no other relational operator that could share the instruction pattern.
+        Matcher matcher = RELATIONAL_OPERATOR.matcher(before);
+        int operators = 0;
+        while (matcher.find()) {
+            operators++;
+        }
+        Relation from = Relation.of(oldOperator);
+        Relation to = Relation.of(newOperator);
+        if (operators != 1 || from == null || to == null) {
+            return null;
+        }
+        // Equality on booleans shares int branches with numbers, and an enhanced for loop adds its own
+        // bounds check; neither case can be told apart from the bytecode alone.
+        if (from.isEquality() != to.isEquality() || (before.contains("for (") && before.contains(" : "))) {
+            return null;
+        }
+
+        Site target = null;
+        for (Site site : sites) {
+            Relation relation = branchRelation(site.instruction().opcode());
+            if (relation != from && relation != from.negate()) {
+                continue;
+            }
+            if (target != null) {
+                return null;
+            }
+            target = site;
+        }
+        if (target == null) {
+            return null;
+        }
+
+        ClassFileCode.Instruction branch = target.instruction();
+        int opcode = branch.opcode();
+        if (opcode >= IFEQ && opcode < IF_ICMPEQ && isFloatingCompare(branch.previousOpcode())) {
+            // fcmpl/fcmpg and dcmpl/dcmpg pick their NaN result from the original operator.
+            return null;
+        }
+        Relation replacement = branchRelation(opcode) == from ? to : to.negate();
+        int family = opcode < IF_ICMPEQ ? IFEQ : opcode < IF_ACMPEQ ? IF_ICMPEQ : opcode < IFNULL ? IF_ACMPEQ : IFNULL;
+        return patch(target, family + replacement.ordinal());
+    }
+
+    private Map<String, byte[]> removeNegation(String before, String after, List<Site> sites) {
+        int position = 0;
+        while (position < after.length() && before.charAt(position) == after.charAt(position)) {
+            position++;
+        }
+        if (before.charAt(position) != '-' || !before.substring(position + 1).equals(after.substring(position))) {
+            return null;
+        }
+        // Only a lone minus sign on the line: literals such as -1 are folded and never reach ineg.
+        if (before.indexOf('-') != before.lastIndexOf('-') || position + 1 >= before.length()) {
+            return null;
+        }
+        char operand = before.charAt(position + 1);
+        if (!(Character.isJavaIdentifierStart(operand) || operand == '(')) {
+            return null;
+        }
+
+        Site target = null;
+        for (Site site : sites) {
+            int opcode = site.instruction().opcode();
+            if (opcode >= INEG && opcode <= DNEG) {
+                if (target != null) {
+                    return null;
+                }
+                target = site;
+            }
+        }
+        return target == null ? null : patch(target, NOP);
+    }
+
+    private Map<String, byte[]> patch(Site site, int newOpcode) {
+        Map<String, byte[]> classes = copyOfBase();
+        classes.get(site.className())[site.instruction().offset()] = (byte) newOpcode;
+        return classes;
+    }
+
+    private Map<String, byte[]> copyOfBase() {
+        Map<String, byte[]> copy = new LinkedHashMap<>();
+        baseClasses.forEach((name, bytes) -> copy.put(name, bytes.clone()));
+        return copy;
+    }
+
+    private static String operatorAt(String line, int start, int minimumEnd) {
+        int end = start;
+        while (end < line.length() && OPERATOR_CHARS.indexOf(line.charAt(end)) >= 0) {
+            end++;
+        }
+        if (end == start || end < minimumEnd || start == 0 || line.charAt(start - 1) != ' '
+                || end >= line.length() || line.charAt(end) != ' ') {
+            return null;
+        }
+        return line.substring(start, end);
+    }
+
+    private static Relation branchRelation(int opcode) {
+        if (opcode >= IFEQ && opcode < IF_ACMPEQ + 2) {
+            int index = opcode < IF_ICMPEQ ? opcode - IFEQ
+                : opcode < IF_ACMPEQ ? opcode - IF_ICMPEQ : opcode - IF_ACMPEQ;
+            return Relation.values()[index];
+        }
+        if (opcode == IFNULL) {
+            return Relation.EQ;
+        }
+        if (opcode == IFNONNULL) {
+            return Relation.NE;
+        }
+        return null;
+    }
+
+    private static boolean isFloatingCompare(int opcode) {
+        return opcode >= 0x95 && opcode <= 0x98;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Operator fast path: %d rewritten, %d unchanged, %d compiled by javac",
+            rewritten.get(), reused.get(), fellBack.get());
+    }
+}
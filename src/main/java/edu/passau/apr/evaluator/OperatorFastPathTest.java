@@ -0,0 +1,173 @@
+package edu.passau.apr.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class OperatorFastPathTest {
+
+    String source = StaticJavaParser.parse("""
+        public class Ops {
+            static int clamp(int x, int lo) {
+                if (x < lo) {
+                    return lo;
+                }
+                return x;
+            }
+            static boolean atMost(int a, int b) {
+                return a <= b;
+            }
+            static boolean atLeast(int a, int b) {
+                return a >= b;
+            }
+            static boolean above(int a, int b) {
+                return a > b;
+            }
+            static boolean same(Object a, Object b) {
+                return a == b;
+            }
+            static boolean present(Object a) {
+                return a != null;
+            }
+            static int countBelow(int[] values, int bound) {
+                int count = 0;
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] <= bound) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+            static int flip(int x) {
+                return -x;
+            }
+            static double flipDouble(double x) {
+                return -(x * 2);
+            }
+        }
+        """).toString();
+
+    static Map<String, byte[]> compile(String className, String source) throws Exception {
+        CompilerSession session = CompilerSession.open(List.of());
+        try {
+            assertTrue(session.inMemoryTask(className, source).call(), "javac rejected the program");
+            return session.drainClassBytes();
+        } finally {
+            session.close();
+        }
+    }
+
+    static void assertSameClasses(Map<String, byte[]> expected, Map<String, byte[]> actual, String mutant) {
+        assertEquals(expected.keySet(), actual.keySet(), "classes of " + mutant);
+        expected.forEach((name, bytes) -> assertArrayEquals(bytes, actual.get(name), "bytes of " + name + " in " + mutant));
+    }
+
+    OperatorFastPath fastPath() throws Exception {
+        return new OperatorFastPath(source, compile("Ops", source));
+    }
+
+    /**
+     * Every ordering mutant and every equality mutant of a single-operator line.
+     */
+    List<String> relationalMutants() {
+        List<String> mutants = new ArrayList<>();
+        String[] lines = source.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            for (String group : List.of("< <= > >=", "== !=")) {
+                for (String from : group.split(" ")) {
+                    if (!lines[i].contains(" " + from + " ")) {
+                        continue;
+                    }
+                    for (String to : group.split(" ")) {
+                        if (!to.equals(from)) {
+                            String[] mutated = lines.clone();
+                            mutated[i] = lines[i].replace(" " + from + " ", " " + to + " ");
+                            mutants.add(String.join("\n", mutated));
+                        }
+                    }
+                }
+            }
+        }
+        return mutants;
+    }
+
+    @Test
+    void relationalSwapsMatchJavac() throws Exception {
+        OperatorFastPath fastPath = fastPath();
+        int rewritten = 0;
+        for (String mutant : relationalMutants()) {
+            Map<String, byte[]> derived = fastPath.classBytesFor(mutant);
+            if (derived != null) {
+                assertSameClasses(compile("Ops", mutant), derived, mutant);
+                rewritten++;
+            }
+        }
+        assertTrue(rewritten >= 15, "only " + rewritten + " mutants were rewritten");
+    }
+
+    @Test
+    void shorterRelationsAreRewritten() throws Exception {
+        OperatorFastPath fastPath = fastPath();
+        for (String[] swap : new String[][] {{"a <= b", "a < b"}, {"a >= b", "a > b"}, {"values[i] <= bound", "values[i] < bound"}}) {
+            String mutant = source.replace(swap[0], swap[1]);
+            Map<String, byte[]> derived = fastPath.classBytesFor(mutant);
+            assertNotNull(derived, swap[0] + " to " + swap[1]);
+            assertSameClasses(compile("Ops", mutant), derived, mutant);
+        }
+    }
+
+    /**
+     * A removed minus becomes a nop, so the code is one byte longer than javac's; the mutant
+     * must still differ from the original in that byte only and behave like javac's output.
+     */
+    @Test
+    void removedNegationBehavesLikeJavac() throws Exception {
+        OperatorFastPath fastPath = fastPath();
+        byte[] base = compile("Ops", source).get("Ops");
+        Object[][] removals = {{"return -x;", "return x;", "flip", int.class, 21},
+            {"return -(x * 2);", "return (x * 2);", "flipDouble", double.class, 1.25}};
+        for (Object[] removal : removals) {
+            String mutant = source.replace((String) removal[0], (String) removal[1]);
+            Map<String, byte[]> derived = fastPath.classBytesFor(mutant);
+            assertNotNull(derived, (String) removal[0]);
+            int changed = 0;
+            for (int i = 0; i < base.length; i++) {
+                if (base[i] != derived.get("Ops")[i]) {
+                    assertEquals(0, derived.get("Ops")[i], "a removed negation must become a nop");
+                    changed++;
+                }
+            }
+            assertEquals(1, changed);
+            String method = (String) removal[2];
+            Class<?> type = (Class<?>) removal[3];
+            assertEquals(invoke(compile("Ops", mutant), method, type, removal[4]),
+                invoke(derived, method, type, removal[4]), method);
+        }
+    }
+
+    static Object invoke(Map<String, byte[]> classes, String method, Class<?> type, Object argument) throws Exception {
+        try (ByteArrayClassLoader loader = new ByteArrayClassLoader(new URL[0], null, classes)) {
+            Method target = loader.loadClass("Ops").getDeclaredMethod(method, type);
+            target.setAccessible(true);
+            return target.invoke(null, argument);
+        }
+    }
+
+    @Test
+    void otherEditsFallBackToJavac() throws Exception {
+        OperatorFastPath fastPath = fastPath();
+        assertNull(fastPath.classBytesFor(source.replace("return lo;", "return x;")));
+        assertNull(fastPath.classBytesFor(source.replace("count++;", "count--;")));
+        // Two changed lines.
+        assertNull(fastPath.classBytesFor(source.replace("a <= b", "a < b").replace("a >= b", "a > b")));
+        assertSameClasses(compile("Ops", source), fastPath.classBytesFor(source), "the unchanged program");
+    }
+}
@@ -0,0 +1,114 @@
+package edu.passau.apr.evaluator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+
+/**
+ * Routes {@code System.out} and {@code System.err} per thread. {@link #install()} replaces both
+ * streams once with routing streams; a thread that runs candidate code sets its own sink with
+ * {@link #withSink}, and every other thread keeps writing to the original streams. Concurrent
+ * evaluations therefore never have to swap the global streams or wait for each other.
+ *
+ * <p>The sink is inherited by threads the candidate itself starts. {@link Watchdog} hands the
+ * caller's sink to its pooled threads explicitly.
+ */
+final class OutputRouter {
+    static final OutputStream DISCARD = OutputStream.nullOutputStream();
+
+    private static final InheritableThreadLocal<OutputStream> SINK = new InheritableThreadLocal<>();
+    private static boolean installed;
+
+    private OutputRouter() {
+    }
+
+    static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        System.setOut(new PrintStream(new RoutingOutputStream(System.out), true));
+        System.setErr(new PrintStream(new RoutingOutputStream(System.err), true));
+        installed = true;
+    }
+
+    /**
+     * Returns the calling thread's sink, or null when it writes to the original streams.
+     */
+    static OutputStream currentSink() {
+        return SINK.get();
+    }
+
+    /**
+     * Runs {@code task} with the calling thread's output sent to {@code sink}; null passes it through.
+     */
+    static <T> T withSink(OutputStream sink, Callable<T> task) throws Exception {
+        OutputStream previous = SINK.get();
+        SINK.set(sink);
+        try {
+            return task.call();
+        } finally {
+            SINK.set(previous);
+        }
+    }
+
+    private static final class RoutingOutputStream extends OutputStream {
+        private final PrintStream passthrough;
+
+        RoutingOutputStream(PrintStream passthrough) {
+            this.passthrough = passthrough;
+        }
+
+        private OutputStream target() {
+            OutputStream sink = SINK.get();
+            return sink != null ? sink : passthrough;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+
+    /**
+     * Sink that keeps the first {@code limit} bytes written to it and drops the rest.
+     */
+    static final class BoundedBuffer extends OutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final int limit;
+        private boolean truncated;
+
+        BoundedBuffer(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int room = limit - buffer.size();
+            if (len > room) {
+                truncated = true;
+            }
+            buffer.write(b, off, Math.max(0, Math.min(len, room)));
+        }
+
+        synchronized String contents() {
+            return buffer.toString() + (truncated ? System.lineSeparator() + "[output truncated]" : "");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package edu.passau.apr.evaluator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Moves compiled classes out of a synthetic package by rewriting the class-name strings in their
+ * constant pools. Everything else in a class file refers to the pool by index, so the bytes after
+ * the pool are copied unchanged.
+ */
+final class PackageRelocator {
+
+    private PackageRelocator() {
+    }
+
+    /**
+     * Strips {@code packagePrefix} (e.g. {@code "apr_batch.c3."}) from the names and contents of
+     * the given classes.
+     */
+    static Map<String, byte[]> strip(Map<String, byte[]> classBytes, String packagePrefix) {
+        String internalPrefix = packagePrefix.replace('.', '/');
+        Map<String, byte[]> relocated = new LinkedHashMap<>();
+        classBytes.forEach((name, bytes) -> relocated.put(
+            name.startsWith(packagePrefix) ? name.substring(packagePrefix.length()) : name,
+            strip(bytes, internalPrefix)));
+        return relocated;
+    }
+
+    private static byte[] strip(byte[] classBytes, String internalPrefix) {
+        ByteBuffer in = ByteBuffer.wrap(classBytes);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(classBytes.length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(classBytes, 0, 8); // magic, minor and major version
+            in.position(8);
+            int constantCount = Short.toUnsignedInt(in.getShort());
+            out.writeShort(constantCount);
+            for (int i = 1; i < constantCount; i++) {
+                int start = in.position();
+                int tag = Byte.toUnsignedInt(in.get());
+                if (tag == 1) {
+                    byte[] utf8 = new byte[Short.toUnsignedInt(in.getShort())];
+                    in.get(utf8);
+                    // Class files use modified UTF-8, which matches standard UTF-8 for the ASCII
+                    // prefix being removed; other bytes are carried over untouched.
+                    String value = new String(utf8, StandardCharsets.ISO_8859_1);
+                    byte[] rewritten = value.replace(internalPrefix, "").getBytes(StandardCharsets.ISO_8859_1);
+                    out.writeByte(1);
+                    out.writeShort(rewritten.length);
+                    out.write(rewritten);
+                    continue;
+                }
+                int length = switch (tag) {
+                    case 3, 4, 9, 10, 11, 12, 17, 18 -> 4;
+                    case 5, 6 -> 8;
+                    case 7, 8, 16, 19, 20 -> 2;
+                    case 15 -> 3;
+                    default -> throw new IllegalArgumentException("Unknown constant tag " + tag);
+                };
+                out.write(classBytes, start, 1 + length);
+                in.position(start + 1 + length);
+                if (tag == 5 || tag == 6) {
+                    i++; // long and double take two slots
+                }
+            }
+            out.write(classBytes, in.position(), classBytes.length - in.position());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
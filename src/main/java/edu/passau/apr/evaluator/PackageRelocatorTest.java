@@ -0,0 +1,142 @@
+package edu.passau.apr.evaluator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class PackageRelocatorTest {
+
+    String source = """
+        import java.util.*;
+        import java.util.function.*;
+
+        public class Shop {
+            private final List<Item> items = new ArrayList<>();
+            private final Comparator<Item> byPrice = new Comparator<Item>() {
+                @Override
+                public int compare(Item a, Item b) {
+                    return Integer.compare(a.price(), b.price());
+                }
+            };
+
+            record Item(String name, int price) {
+            }
+
+            enum Kind { FOOD, TOOL }
+
+            interface Rule {
+                boolean accepts(Item item);
+            }
+
+            class Basket {
+                Shop owner() {
+                    return Shop.this;
+                }
+            }
+
+            static class Counter {
+                int count;
+            }
+
+            Shop add(String name, int price) {
+                items.add(new Item(name, price));
+                return this;
+            }
+
+            Item[] cheapest(int limit) {
+                Rule rule = item -> item.price() <= limit;
+                Function<Item, Shop> back = item -> this;
+                Supplier<Counter> counter = Counter::new;
+                Runnable log = new Runnable() {
+                    public void run() {
+                        counter.get().count++;
+                    }
+                };
+                log.run();
+                return items.stream().filter(rule::accepts).sorted(byPrice).toArray(Item[]::new);
+            }
+
+            Kind kindOf(Item item) {
+                return switch (item.name()) {
+                    case "hammer" -> Kind.TOOL;
+                    default -> Kind.FOOD;
+                };
+            }
+
+            String describe() {
+                return "Shop " + getClass().getName() + " " + new Basket().owner().items.size();
+            }
+        }
+        """;
+
+    String other = source.replace("item.price() <= limit", "item.price() < limit");
+
+    static Map<String, byte[]> compile(String className, String source) throws Exception {
+        CompilerSession session = CompilerSession.open(List.of());
+        try {
+            assertTrue(session.inMemoryTask(className, source).call(), "javac rejected the program");
+            return session.drainClassBytes();
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Compiles the candidates the way the batch mode does and relocates each one's classes.
+     */
+    static List<Map<String, byte[]>> compileBatch(String className, List<String> sources) throws Exception {
+        Map<String, String> units = new LinkedHashMap<>();
+        for (int i = 0; i < sources.size(); i++) {
+            units.put("apr_batch.c" + i + "." + className, "package apr_batch.c" + i + "; " + sources.get(i));
+        }
+        CompilerSession session = CompilerSession.open(List.of());
+        Map<String, byte[]> classBytes;
+        try {
+            assertTrue(session.inMemoryBatchTask(units, null).call(), "javac rejected the batch");
+            classBytes = session.drainClassBytes();
+        } finally {
+            session.close();
+        }
+        List<Map<String, byte[]>> relocated = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            String packagePrefix = "apr_batch.c" + i + ".";
+            Map<String, byte[]> own = new LinkedHashMap<>();
+            classBytes.forEach((name, bytes) -> {
+                if (name.startsWith(packagePrefix)) {
+                    own.put(name, bytes);
+                }
+            });
+            relocated.add(PackageRelocator.strip(own, packagePrefix));
+        }
+        return relocated;
+    }
+
+    static void assertSameClasses(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+        assertEquals(new TreeSet<>(expected.keySet()), new TreeSet<>(actual.keySet()));
+        expected.forEach((name, bytes) -> assertArrayEquals(bytes, actual.get(name), "bytes of " + name));
+    }
+
+    @Test
+    void relocatedClassesMatchStandaloneCompile() throws Exception {
+        List<Map<String, byte[]>> batch = compileBatch("Shop", List.of(source, other));
+        Map<String, byte[]> standalone = compile("Shop", source);
+        // Nested, inner, local anonymous and field anonymous classes, plus the record and enum.
+        for (String nested : List.of("Shop$Item", "Shop$Kind", "Shop$Rule", "Shop$Basket", "Shop$Counter", "Shop$1", "Shop$2")) {
+            assertTrue(standalone.containsKey(nested), nested);
+        }
+        assertSameClasses(standalone, batch.get(0));
+        assertSameClasses(compile("Shop", other), batch.get(1));
+    }
+
+    @Test
+    void leavesOtherNamesAlone() throws Exception {
+        Map<String, byte[]> standalone = compile("Shop", source);
+        assertSameClasses(standalone, PackageRelocator.strip(standalone, "apr_batch.c0."));
+    }
+}
@@ -0,0 +1,290 @@
+package edu.passau.apr.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.ArrayCreationExpr;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.EnclosedExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.LiteralExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.MethodReferenceExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.SwitchExpr;
+import com.github.javaparser.ast.expr.ThisExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.AssertStmt;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.EmptyStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.LocalClassDeclarationStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+
+import edu.passau.apr.util.ProgramHash;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rewrites candidates into a canonical form so that trivially equivalent programs share one
+ * fitness cache entry. The canonical text is only used as a cache key; the candidate itself is
+ * compiled and tested unchanged.
+ *
+ * <p>Identical swaps and structurally equal expression replacements already print the same text
+ * as their parent. On top of that, this class collapses nested parentheses, orders the operands
+ * of {@code ==} and {@code !=} and turns {@code >} and {@code >=} into {@code <} and {@code <=}
+ * when both operands are plain names or literals, and drops a statement that repeats its
+ * immediate predecessor when running it twice cannot differ from running it once. That last rule
+ * only covers empty statements, assertions, idempotent assignments and {@code if}s and blocks made
+ * of those; anything that calls a method, declares a variable, loops or jumps is left alone, so
+ * both forms compile or fail alike.</p>
+ */
+public final class ProgramNormalizer {
+
+    // Hashes of the distinct candidates seen and of their canonical forms; the difference in size
+    // is the number of evaluations the normalizer saved.
+    private final Set<String> candidateHashes = ConcurrentHashMap.newKeySet();
+    private final Set<String> canonicalHashes = ConcurrentHashMap.newKeySet();
+
+    ProgramNormalizer() {
+    }
+
+    /**
+     * Returns the hash of a candidate's canonical form, to be used as its cache key.
+     */
+    String programHash(String source) {
+        String canonicalHash = ProgramHash.of(normalize(source));
+        if (candidateHashes.add(ProgramHash.of(source))) {
+            canonicalHashes.add(canonicalHash);
+        }
+        return canonicalHash;
+    }
+
+    /**
+     * Returns the canonical text of a candidate, or the candidate itself when it does not parse.
+     */
+    static String normalize(String source) {
+        CompilationUnit cu;
+        try {
+            cu = StaticJavaParser.parse(source);
+        } catch (RuntimeException e) {
+            return source;
+        }
+        boolean changed = collapseParentheses(cu);
+        changed |= orderOperands(cu);
+        changed |= dropRepeatedStatements(cu);
+        return changed ? cu.toString() : source;
+    }
+
+    private static boolean collapseParentheses(CompilationUnit cu) {
+        boolean changed = false;
+        for (EnclosedExpr enclosed : cu.findAll(EnclosedExpr.class)) {
+            if (enclosed.getInner() instanceof EnclosedExpr inner && enclosed.getParentNode().isPresent()) {
+                enclosed.replace(inner);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean orderOperands(CompilationUnit cu) {
+        boolean changed = false;
+        for (BinaryExpr binary : cu.findAll(BinaryExpr.class)) {
+            if (!isPlain(binary.getLeft()) || !isPlain(binary.getRight())) {
+                continue;
+            }
+            BinaryExpr.Operator operator = binary.getOperator();
+            boolean equality = operator == BinaryExpr.Operator.EQUALS || operator == BinaryExpr.Operator.NOT_EQUALS;
+            if (equality && binary.getLeft().toString().compareTo(binary.getRight().toString()) > 0) {
+                swapOperands(binary);
+                changed = true;
+            } else if (operator == BinaryExpr.Operator.GREATER || operator == BinaryExpr.Operator.GREATER_EQUALS) {
+                swapOperands(binary);
+                binary.setOperator(operator == BinaryExpr.Operator.GREATER
+                    ? BinaryExpr.Operator.LESS : BinaryExpr.Operator.LESS_EQUALS);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static void swapOperands(BinaryExpr binary) {
+        Expression left = binary.getLeft();
+        binary.setLeft(binary.getRight());
+        binary.setRight(left);
+    }
+
+    // Reading these has no effects, so which one is evaluated first cannot be observed.
+    private static boolean isPlain(Expression expression) {
+        return expression instanceof NameExpr || expression instanceof LiteralExpr || expression instanceof ThisExpr;
+    }
+
+    private static boolean dropRepeatedStatements(CompilationUnit cu) {
+        Set<String> fixedNames = fixedNames(cu);
+        boolean changed = false;
+        for (BlockStmt block : cu.findAll(BlockStmt.class)) {
+            changed |= dropRepeated(block.getStatements(), fixedNames);
+        }
+        for (SwitchEntry entry : cu.findAll(SwitchEntry.class)) {
+            changed |= dropRepeated(entry.getStatements(), fixedNames);
+        }
+        return changed;
+    }
+
+    private static boolean dropRepeated(NodeList<Statement> statements, Set<String> fixedNames) {
+        boolean changed = false;
+        for (int i = statements.size() - 1; i > 0; i--) {
+            Statement statement = statements.get(i);
+            if (statement.equals(statements.get(i - 1)) && isRepeatable(statement, fixedNames)) {
+                statements.remove(i);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Names that may not be assigned twice: final variables, and variables a lambda or inner
+     * class captures, which must stay effectively final.
+     */
+    private static Set<String> fixedNames(CompilationUnit cu) {
+        Set<String> names = new HashSet<>();
+        for (VariableDeclarationExpr declaration : cu.findAll(VariableDeclarationExpr.class)) {
+            if (declaration.isFinal()) {
+                declaration.getVariables().forEach(variable -> names.add(variable.getNameAsString()));
+            }
+        }
+        for (FieldDeclaration field : cu.findAll(FieldDeclaration.class)) {
+            if (field.isFinal()) {
+                field.getVariables().forEach(variable -> names.add(variable.getNameAsString()));
+            }
+        }
+        for (Parameter parameter : cu.findAll(Parameter.class)) {
+            if (parameter.isFinal()) {
+                names.add(parameter.getNameAsString());
+            }
+        }
+        for (Node capturing : cu.findAll(Node.class, node -> node instanceof LambdaExpr
+                || node instanceof LocalClassDeclarationStmt
+                || (node instanceof ObjectCreationExpr creation && creation.getAnonymousClassBody().isPresent()))) {
+            capturing.findAll(NameExpr.class).forEach(name -> names.add(name.getNameAsString()));
+        }
+        return names;
+    }
+
+    /**
+     * Whether running {@code statement} twice in a row is indistinguishable from running it once,
+     * both at run time and to the compiler.
+     */
+    private static boolean isRepeatable(Statement statement, Set<String> fixedNames) {
+        Set<String> written = new HashSet<>();
+        if (!collectWrites(statement, fixedNames, written)) {
+            return false;
+        }
+        for (Node node : statement.findAll(Node.class)) {
+            String read = null;
+            if (node instanceof NameExpr name && !isAssignmentTarget(name)) {
+                read = name.getNameAsString();
+            } else if (node instanceof FieldAccessExpr field && !isAssignmentTarget(field)) {
+                read = field.getNameAsString();
+            }
+            if (read != null && written.contains(read)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean collectWrites(Statement statement, Set<String> fixedNames, Set<String> written) {
+        if (statement instanceof EmptyStmt) {
+            return true;
+        }
+        if (statement instanceof AssertStmt assertStmt) {
+            return isReadOnly(assertStmt.getCheck())
+                && assertStmt.getMessage().map(ProgramNormalizer::isReadOnly).orElse(true);
+        }
+        if (statement instanceof ExpressionStmt expressionStmt) {
+            if (!(expressionStmt.getExpression() instanceof AssignExpr assign)
+                    || assign.getOperator() != AssignExpr.Operator.ASSIGN || !isReadOnly(assign.getValue())) {
+                return false;
+            }
+            String target = targetName(assign.getTarget());
+            if (target == null || fixedNames.contains(target)) {
+                return false;
+            }
+            written.add(target);
+            return true;
+        }
+        if (statement instanceof IfStmt ifStmt) {
+            return isReadOnly(ifStmt.getCondition())
+                && collectWrites(ifStmt.getThenStmt(), fixedNames, written)
+                && ifStmt.getElseStmt().map(otherwise -> collectWrites(otherwise, fixedNames, written)).orElse(true);
+        }
+        if (statement instanceof BlockStmt block) {
+            for (Statement inner : block.getStatements()) {
+                if (!collectWrites(inner, fixedNames, written)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static String targetName(Expression target) {
+        if (target instanceof NameExpr name) {
+            return name.getNameAsString();
+        }
+        if (target instanceof FieldAccessExpr field && field.getScope() instanceof ThisExpr) {
+            return field.getNameAsString();
+        }
+        return null;
+    }
+
+    private static boolean isAssignmentTarget(Expression expression) {
+        return expression.getParentNode().orElse(null) instanceof AssignExpr assign && assign.getTarget() == expression;
+    }
+
+    /**
+     * Whether evaluating an expression only reads state. It may still throw, which is harmless:
+     * a repeat is then never reached.
+     */
+    private static boolean isReadOnly(Expression expression) {
+        for (Node node : expression.findAll(Node.class)) {
+            if (node instanceof MethodCallExpr || node instanceof ObjectCreationExpr || node instanceof AssignExpr
+                    || node instanceof LambdaExpr || node instanceof MethodReferenceExpr
+                    || node instanceof ArrayCreationExpr || node instanceof SwitchExpr
+                    || node instanceof VariableDeclarator) {
+                return false;
+            }
+            if (node instanceof UnaryExpr unary && isIncrementOrDecrement(unary.getOperator())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIncrementOrDecrement(UnaryExpr.Operator operator) {
+        return operator == UnaryExpr.Operator.PREFIX_INCREMENT || operator == UnaryExpr.Operator.PREFIX_DECREMENT
+            || operator == UnaryExpr.Operator.POSTFIX_INCREMENT || operator == UnaryExpr.Operator.POSTFIX_DECREMENT;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Normalizer: %d distinct candidates folded into %d canonical programs (%d evaluations saved)",
+            candidateHashes.size(), canonicalHashes.size(), candidateHashes.size() - canonicalHashes.size());
+    }
+}
@@ -0,0 +1,116 @@
+package edu.passau.apr.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ProgramNormalizerTest {
+
+    // Candidates reach the normalizer printed, so the test programs are printed the same way.
+    static String printed(String source) {
+        return StaticJavaParser.parse(source).toString();
+    }
+
+    static String program(String body) {
+        return printed("""
+            public class Calc {
+                private int total;
+                private int[] values = new int[4];
+
+                int run(int x, int y, int i, int v) {
+                    %s
+                    return total + x + y;
+                }
+            }
+            """.formatted(body));
+    }
+
+    static boolean compiles(String source) throws Exception {
+        CompilerSession session = CompilerSession.open(List.of());
+        try {
+            return session.inMemoryTask("Calc", source).call();
+        } finally {
+            session.close();
+        }
+    }
+
+    static void assertMerged(String first, String second) throws Exception {
+        assertTrue(compiles(first), first);
+        assertTrue(compiles(second), second);
+        assertEquals(ProgramNormalizer.normalize(first), ProgramNormalizer.normalize(second));
+    }
+
+    static void assertKept(String first, String second) {
+        assertNotEquals(ProgramNormalizer.normalize(first), ProgramNormalizer.normalize(second), second);
+    }
+
+    @Test
+    void mergesRepeatedIdempotentStatements() throws Exception {
+        for (String statement : List.of(";", "x = y;", "total = x + y;", "assert x <= y : \"order\";",
+                "if (x < y) { total = y; } else { total = 0; }", "{ x = 1; y = 2; }", "this.total = y;")) {
+            assertMerged(program(statement), program(statement + "\n" + statement));
+        }
+    }
+
+    @Test
+    void mergesEquivalentOperands() throws Exception {
+        assertMerged(program("if (x < y) { total = 1; }"), program("if (y > x) { total = 1; }"));
+        assertMerged(program("if (x <= 3) { total = 1; }"), program("if (3 >= x) { total = 1; }"));
+        assertMerged(program("if (x == y) { total = 1; }"), program("if (y == x) { total = 1; }"));
+        assertMerged(program("if (x != 0) { total = 1; }"), program("if (0 != x) { total = 1; }"));
+        assertMerged(program("total = (x + y);"), program("total = (((x + y)));"));
+    }
+
+    @Test
+    void keepsStatementsWithEffects() {
+        // Each of these differs, or fails to compile, when run twice.
+        for (String statement : List.of("x = i++;", "x = ++i;", "values[i] = v;", "total = total + 1;",
+                "x = y; y = x + 1;", "if (x < y) { x = y; } else { total = 0; }", "System.out.println(x);",
+                "int z = x;", "while (x < y) { x = y; }")) {
+            assertKept(program(statement), program(statement + "\n" + statement));
+        }
+    }
+
+    @Test
+    void keepsAssignmentsToFixedNames() throws Exception {
+        // A second assignment to a final local or to a local a lambda captures does not compile.
+        String finalLocal = "final int z; z = y; %s Runnable r = () -> total = z; r.run();";
+        String capturedLocal = "int z; z = y; %s Runnable r = () -> total = z; r.run();";
+        String capturedByClass = "int z; z = y; %s Runnable r = new Runnable() { public void run() { total = z; } }; r.run();";
+        for (String body : List.of(finalLocal, capturedLocal, capturedByClass)) {
+            String once = program(body.formatted(""));
+            String twice = program(body.formatted("z = y;"));
+            assertTrue(compiles(once), once);
+            assertFalse(compiles(twice), twice);
+            assertKept(once, twice);
+        }
+    }
+
+    @Test
+    void keepsFieldAssignmentFromParameterOfSameName() throws Exception {
+        String once = printed("""
+            public class Calc {
+                private final int limit;
+
+                Calc(int limit) {
+                    this.limit = limit;
+                }
+            }
+            """);
+        String twice = once.replace("this.limit = limit;", "this.limit = limit;\n        this.limit = limit;");
+        assertFalse(compiles(twice));
+        assertKept(once, twice);
+        String mutable = once.replace("final ", "");
+        assertKept(mutable, mutable.replace("this.limit = limit;", "this.limit = limit;\n        this.limit = limit;"));
+    }
+
+    @Test
+    void leavesOrderOfEffectsAlone() {
+        assertKept(program("if (x < i++) { total = 1; }"), program("if (i++ > x) { total = 1; }"));
+        assertKept(program("total = x - y;"), program("total = y - x;"));
+    }
+}
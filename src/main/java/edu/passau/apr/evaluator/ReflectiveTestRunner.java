@@ -0,0 +1,187 @@
+package edu.passau.apr.evaluator;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs {@code @Test} methods of the given test classes through plain reflection, one fresh
+ * instance per test, each bounded by the {@link Watchdog}. Shared by the in-process evaluator and
+ * the forked worker JVMs.
+ */
+final class ReflectiveTestRunner {
+
+    /**
+     * @param cutShort the test did not finish on its own: it hit its timeout or its step budget
+     */
+    record Outcome(String testId, boolean passed, long elapsedNanos, boolean cutShort) {}
+
+    private enum Verdict { PASSED, FAILED, CUT_SHORT }
+
+    /**
+     * Test ordering and early-stop rules. Tests in {@code firstStage} run before all others; when
+     * fewer than {@code minFirstStagePasses} of them pass, the remaining tests are skipped.
+     * Independently, the run stops as soon as the weighted score still reachable, i.e. the sum of
+     * {@code testWeights} over all tests that have not failed, drops below {@code mustBeat}.
+     * A non-empty {@code selectedTests} restricts the run to those tests. {@code testTimeoutsMillis}
+     * overrides the runner's default timeout for individual tests.
+     */
+    record StagePlan(Set<String> firstStage, int minFirstStagePasses,
+                     Map<String, Double> testWeights, double mustBeat, Set<String> selectedTests,
+                     Map<String, Long> testTimeoutsMillis) {
+        static final StagePlan NONE = new StagePlan(Set.of(), 0, Map.of(), Double.NEGATIVE_INFINITY, Set.of(), Map.of());
+    }
+
+    /**
+     * @param skippedTests    discovered tests that were not run because the stage plan stopped early
+     * @param strandedThreads test threads that are still busy after their timeout expired
+     */
+    record Report(List<Outcome> outcomes, int skippedTests, int strandedThreads) {}
+
+    private record TestCase(String testId, Class<?> testClass, Method method) {}
+
+    private final Watchdog watchdog;
+    private final int testTimeoutSec;
+    private final RunawayGuard runawayGuard;
+
+    ReflectiveTestRunner(Watchdog watchdog, int testTimeoutSec) {
+        this(watchdog, testTimeoutSec, null);
+    }
+
+    /**
+     * @param runawayGuard stops candidate threads still running after the tests and keeps each
+     *                     test within its step budget, or null
+     */
+    ReflectiveTestRunner(Watchdog watchdog, int testTimeoutSec, RunawayGuard runawayGuard) {
+        this.watchdog = watchdog;
+        this.testTimeoutSec = testTimeoutSec;
+        this.runawayGuard = runawayGuard;
+    }
+
+    Report run(ClassLoader classLoader, List<String> testClassNames, StagePlan plan) {
+        List<TestCase> firstStage = new ArrayList<>();
+        List<TestCase> secondStage = new ArrayList<>();
+        for (TestCase testCase : discover(classLoader, testClassNames)) {
+            if (!plan.selectedTests().isEmpty() && !plan.selectedTests().contains(testCase.testId())) {
+                continue;
+            }
+            (plan.firstStage().contains(testCase.testId()) ? firstStage : secondStage).add(testCase);
+        }
+
+        List<TestCase> ordered = new ArrayList<>(firstStage);
+        ordered.addAll(secondStage);
+        double reachable = 0.0;
+        for (TestCase testCase : ordered) {
+            reachable += plan.testWeights().getOrDefault(testCase.testId(), 0.0);
+        }
+
+        List<Outcome> outcomes = new ArrayList<>();
+        int firstStagePasses = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            if (i == firstStage.size() && firstStagePasses < plan.minFirstStagePasses()) {
+                break;
+            }
+            TestCase testCase = ordered.get(i);
+            long timeoutMillis = plan.testTimeoutsMillis().getOrDefault(testCase.testId(), TimeUnit.SECONDS.toMillis(testTimeoutSec));
+            long start = System.nanoTime();
+            Verdict verdict = runTest(classLoader, testCase, timeoutMillis);
+            boolean passed = verdict == Verdict.PASSED;
+            outcomes.add(new Outcome(testCase.testId(), passed, System.nanoTime() - start, verdict == Verdict.CUT_SHORT));
+            if (passed) {
+                if (i < firstStage.size()) {
+                    firstStagePasses++;
+                }
+            } else {
+                reachable -= plan.testWeights().getOrDefault(testCase.testId(), 0.0);
+                // Ties with the threshold keep running so that equally fit candidates stay exact.
+                if (reachable < plan.mustBeat() - 1e-9) {
+                    break;
+                }
+            }
+        }
+        int skipped = ordered.size() - outcomes.size();
+        if (runawayGuard != null) {
+            runawayGuard.reap(classLoader);
+        }
+
+        return new Report(List.copyOf(outcomes), skipped, watchdog.strandedTasks());
+    }
+
+    private List<TestCase> discover(ClassLoader classLoader, List<String> testClassNames) {
+        List<TestCase> testCases = new ArrayList<>();
+        for (String testClassName : testClassNames) {
+            try {
+                Class<?> testClass = classLoader.loadClass(testClassName);
+
+                // Find test methods
+                Method[] methods = testClass.getDeclaredMethods();
+                Arrays.sort(methods, Comparator.comparing(Method::getName));
+                for (Method method : methods) {
+                    if (hasTestAnnotation(method)) {
+                        testCases.add(new TestCase(testClassName + "#" + method.getName(), testClass, method));
+                    }
+                }
+            } catch (Exception e) {
+            }
+        }
+        return testCases;
+    }
+
+    private Verdict runTest(ClassLoader classLoader, TestCase testCase, long timeoutMillis) {
+        Class<?> testClass = testCase.testClass();
+        Method method = testCase.method();
+        try {
+            Constructor<?> constructor = testClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            Object testInstance = constructor.newInstance();
+
+            method.setAccessible(true);
+
+            if (runawayGuard != null) {
+                runawayGuard.startTest(classLoader, testCase.testId());
+            }
+            try {
+                Callable<Object> invocation = () -> method.invoke(testInstance);
+                watchdog.call(runawayGuard != null ? runawayGuard.tracked(classLoader, invocation) : invocation,
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+                return Verdict.PASSED;
+            } catch (TimeoutException e) {
+                return Verdict.CUT_SHORT;
+            } catch (ExecutionException e) {
+                return RunawayGuard.isBudgetExceeded(e) ? Verdict.CUT_SHORT : Verdict.FAILED;
+            } finally {
+                if (runawayGuard != null) {
+                    runawayGuard.finishTest(classLoader, testCase.testId());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Verdict.CUT_SHORT;
+        } catch (Exception e) {
+            return Verdict.FAILED;
+        }
+    }
+
+    private boolean hasTestAnnotation(Method method) {
+        // Check for @Test annotation by name (to avoid import issues)
+        try {
+            for (Annotation ann : method.getAnnotations()) {
+                if (ann.annotationType().getSimpleName().equals("Test")) {
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+        }
+        return false;
+    }
+}
@@ -0,0 +1,339 @@
+package edu.passau.apr.evaluator;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.nodeTypes.NodeWithBody;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.DoStmt;
+import com.github.javaparser.ast.stmt.ExplicitConstructorInvocationStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.LocalClassDeclarationStmt;
+import com.github.javaparser.ast.stmt.LocalRecordDeclarationStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.WhileStmt;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops candidate threads that outlive their test. Interrupting a thread does not stop a loop
+ * that never blocks, so every loop body of a candidate starts with a call to a nested holder
+ * class ({@code Main.__AprGuard.check();}) that throws once the holder's {@code stop} flag is set.
+ * Each test run has its own class loader and therefore its own flag.
+ *
+ * <p>Tests run with the candidate's loader as their thread's context class loader, which threads
+ * they start inherit. Once the tests are done, every live thread still carrying that loader is a
+ * runaway: the flag is set, the thread is interrupted and given a short grace period to die.</p>
+ *
+ * <p>With step budgets the same check also starts every method and constructor body and counts
+ * the calls. Each test gets a budget of a multiple of the steps it took on the buggy baseline; a
+ * candidate that exceeds it fails the test at once with the holder's own {@code BudgetExceeded}
+ * error, typically long before the test's timeout would have expired.</p>
+ *
+ * <p>The calls are inserted into the source text without adding lines, so javac diagnostics and
+ * the line tables that mutant schemata and the operator fast path rely on stay as they were.</p>
+ */
+public final class RunawayGuard {
+
+    static final String HOLDER = "__AprGuard";
+    private static final String STOP_FIELD = "stop";
+    private static final String STEPS_FIELD = "steps";
+    private static final String BUDGET_FIELD = "budget";
+    private static final long REAP_GRACE_MS = 100;
+    // Budgets never go below this many steps, so that tests the baseline runs in a few steps do
+    // not fail candidates that merely take a slightly different path.
+    private static final long STEP_BUDGET_FLOOR = 100_000;
+
+    private record Insertion(Position position, boolean after, String text) {}
+
+    private final String mainClassName;
+    private final boolean reapThreads;
+    private final int stepBudgetFactor;
+    // Steps per test on the baseline, recorded until the budgets are calibrated.
+    private final Map<String, Long> baselineSteps = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> stepBudgets;
+    private final AtomicLong reaped = new AtomicLong();
+    private final AtomicLong stranded = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    /**
+     * @param reapThreads      whether to stop candidate threads that outlive their tests
+     * @param stepBudgetFactor multiple of a test's baseline steps it may take, or 0 for no budgets
+     */
+    RunawayGuard(String mainClassName, boolean reapThreads, int stepBudgetFactor) {
+        this.mainClassName = mainClassName;
+        this.reapThreads = reapThreads;
+        this.stepBudgetFactor = stepBudgetFactor;
+    }
+
+    /**
+     * Returns the source with a check at the start of every loop body, and with step budgets of
+     * every method and constructor body, or the source itself when it does not parse or already
+     * uses the holder's name.
+     */
+    String instrument(String source) {
+        if (source.contains(HOLDER)) {
+            return source;
+        }
+        CompilationUnit cu;
+        try {
+            cu = StaticJavaParser.parse(source);
+        } catch (RuntimeException e) {
+            return source;
+        }
+        Optional<TypeDeclaration<?>> mainType = cu.getTypes().stream()
+            .filter(type -> type.getNameAsString().equals(mainClassName))
+            .findFirst();
+        Optional<Position> mainEnd = mainType.flatMap(TypeDeclaration::getEnd);
+        if (mainEnd.isEmpty()) {
+            return source;
+        }
+
+        String check = mainClassName + "." + HOLDER + ".check();";
+        List<Insertion> insertions = new ArrayList<>();
+        for (Statement loop : cu.findAll(Statement.class, statement -> statement instanceof ForStmt
+                || statement instanceof ForEachStmt || statement instanceof WhileStmt || statement instanceof DoStmt)) {
+            Statement body = ((NodeWithBody<?>) loop).getBody();
+            if (body.getBegin().isEmpty() || body.getEnd().isEmpty()) {
+                return source;
+            }
+            if (body instanceof BlockStmt) {
+                insertions.add(new Insertion(body.getBegin().get(), true, " " + check));
+            } else if (!isDeclaration(body)) {
+                // A declaration is no legal loop body; wrapping it in braces would make it compile.
+                insertions.add(new Insertion(body.getBegin().get(), false, "{ " + check + " "));
+                insertions.add(new Insertion(body.getEnd().get(), true, " }"));
+            }
+        }
+        if (stepBudgetFactor > 0) {
+            for (CallableDeclaration<?> callable : cu.findAll(CallableDeclaration.class)) {
+                Optional<BlockStmt> body = callable instanceof MethodDeclaration method ? method.getBody()
+                    : Optional.of(((ConstructorDeclaration) callable).getBody());
+                if (body.isEmpty()) {
+                    continue;
+                }
+                // this(...) and super(...) must stay the first statement of a constructor.
+                Optional<Statement> first = body.get().getStatements().getFirst();
+                Optional<Position> entry = first.filter(Statement::isExplicitConstructorInvocationStmt)
+                    .map(ExplicitConstructorInvocationStmt.class::cast)
+                    .flatMap(ExplicitConstructorInvocationStmt::getEnd)
+                    .or(() -> body.get().getBegin());
+                if (entry.isEmpty()) {
+                    return source;
+                }
+                insertions.add(new Insertion(entry.get(), true, " " + check));
+            }
+        }
+        // Enum constants must be closed with a semicolon before a member; a second one is harmless.
+        String separator = mainType.get() instanceof EnumDeclaration ? "; " : "";
+        insertions.add(new Insertion(mainEnd.get(), false, separator + "static final class " + HOLDER
+            + " { static volatile boolean " + STOP_FIELD + "; static long " + STEPS_FIELD + "; static long "
+            + BUDGET_FIELD + " = Long.MAX_VALUE; static void check() { if (" + STOP_FIELD
+            + ") { throw new Error(\"runaway candidate stopped\"); } if (++" + STEPS_FIELD + " > " + BUDGET_FIELD
+            + ") { throw new BudgetExceeded(); } } static final class BudgetExceeded extends Error {"
+            + " BudgetExceeded() { super(\"step budget exceeded\", null, false, false); } } } "));
+
+        int[] lineStarts = lineStarts(source);
+        StringBuilder instrumented = new StringBuilder(source);
+        insertions.sort(Comparator.comparingInt((Insertion insertion) -> offset(lineStarts, insertion)).reversed());
+        for (Insertion insertion : insertions) {
+            instrumented.insert(offset(lineStarts, insertion), insertion.text());
+        }
+        return instrumented.toString();
+    }
+
+    private static boolean isDeclaration(Statement statement) {
+        return statement instanceof LocalClassDeclarationStmt || statement instanceof LocalRecordDeclarationStmt
+            || (statement instanceof ExpressionStmt expression && expression.getExpression() instanceof VariableDeclarationExpr);
+    }
+
+    private static int[] lineStarts(String source) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                starts.add(i + 1);
+            }
+        }
+        return starts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Positions are 1-based and point at a character; insert before it, or after it.
+    private static int offset(int[] lineStarts, Insertion insertion) {
+        int offset = lineStarts[insertion.position().line - 1] + insertion.position().column - 1;
+        return insertion.after() ? offset + 1 : offset;
+    }
+
+    /**
+     * Wraps a test invocation so that it runs, and starts threads, under the candidate's loader.
+     */
+    <T> Callable<T> tracked(ClassLoader candidateLoader, Callable<T> invocation) {
+        return () -> {
+            Thread thread = Thread.currentThread();
+            ClassLoader previous = thread.getContextClassLoader();
+            thread.setContextClassLoader(candidateLoader);
+            try {
+                return invocation.call();
+            } finally {
+                thread.setContextClassLoader(previous);
+            }
+        };
+    }
+
+    /**
+     * Resets the candidate's step count before a test and hands it the test's budget, if any.
+     */
+    void startTest(ClassLoader candidateLoader, String testId) {
+        if (stepBudgetFactor == 0) {
+            return;
+        }
+        Map<String, Long> budgets = stepBudgets;
+        long budget = budgets != null ? budgets.getOrDefault(testId, Long.MAX_VALUE) : Long.MAX_VALUE;
+        try {
+            Class<?> holder = candidateLoader.loadClass(mainClassName + "$" + HOLDER);
+            setStatic(holder, STEPS_FIELD, 0L);
+            setStatic(holder, BUDGET_FIELD, budget);
+        } catch (ReflectiveOperationException | LinkageError ignored) {
+        }
+    }
+
+    /**
+     * Reads the steps a test took: recorded while the baseline runs, counted against the budget after.
+     */
+    void finishTest(ClassLoader candidateLoader, String testId) {
+        if (stepBudgetFactor == 0) {
+            return;
+        }
+        try {
+            Class<?> holder = candidateLoader.loadClass(mainClassName + "$" + HOLDER);
+            long steps = getStatic(holder, STEPS_FIELD);
+            long budget = getStatic(holder, BUDGET_FIELD);
+            if (stepBudgets == null) {
+                baselineSteps.merge(testId, steps, Math::max);
+            } else if (steps > budget) {
+                exhausted.incrementAndGet();
+            }
+        } catch (ReflectiveOperationException | LinkageError ignored) {
+        }
+    }
+
+    /**
+     * Turns the steps recorded on the baseline into per-test budgets. Tests without a recording
+     * keep running unbudgeted.
+     */
+    void calibrateStepBudgets() {
+        if (stepBudgetFactor == 0) {
+            return;
+        }
+        Map<String, Long> budgets = new HashMap<>();
+        baselineSteps.forEach((testId, steps) -> {
+            long budget = steps < Long.MAX_VALUE / stepBudgetFactor ? steps * stepBudgetFactor : Long.MAX_VALUE;
+            budgets.put(testId, Math.max(STEP_BUDGET_FLOOR, budget));
+        });
+        this.stepBudgets = Map.copyOf(budgets);
+    }
+
+    /**
+     * Whether a test failed because the candidate ran out of its step budget.
+     */
+    static boolean isBudgetExceeded(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            Class<?> holder = cause.getClass().getEnclosingClass();
+            if (holder != null && holder.getSimpleName().equals(HOLDER)
+                    && cause.getClass().getSimpleName().equals("BudgetExceeded")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void setStatic(Class<?> holder, String name, long value) throws ReflectiveOperationException {
+        Field field = holder.getDeclaredField(name);
+        field.setAccessible(true);
+        field.setLong(null, value);
+    }
+
+    private static long getStatic(Class<?> holder, String name) throws ReflectiveOperationException {
+        Field field = holder.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.getLong(null);
+    }
+
+    /**
+     * Stops the threads still running the candidate once its tests are done.
+     */
+    void reap(ClassLoader candidateLoader) {
+        if (!reapThreads) {
+            return;
+        }
+        List<Thread> survivors = threadsOf(candidateLoader);
+        if (survivors.isEmpty()) {
+            return;
+        }
+        try {
+            Field field = candidateLoader.loadClass(mainClassName + "$" + HOLDER).getDeclaredField(STOP_FIELD);
+            field.setAccessible(true);
+            field.setBoolean(null, true);
+        } catch (ReflectiveOperationException | LinkageError ignored) {
+        }
+        survivors.forEach(Thread::interrupt);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REAP_GRACE_MS);
+        try {
+            for (Thread survivor : survivors) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis > 0) {
+                    survivor.join(remainingMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Thread survivor : survivors) {
+            // A pooled test thread survives the candidate: it is free again once it dropped the loader.
+            boolean running = survivor.isAlive() && survivor.getContextClassLoader() == candidateLoader;
+            (running ? stranded : reaped).incrementAndGet();
+        }
+    }
+
+    private static List<Thread> threadsOf(ClassLoader candidateLoader) {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        Thread[] threads = new Thread[root.activeCount() * 2 + 16];
+        int count = root.enumerate(threads, true);
+        List<Thread> owned = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (threads[i] != Thread.currentThread() && threads[i].getContextClassLoader() == candidateLoader) {
+                owned.add(threads[i]);
+            }
+        }
+        return owned;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Runaway guard: %d candidate threads stopped after their tests, %d still running;"
+                + " %d tests stopped by their step budget",
+            reaped.get(), stranded.get(), exhausted.get());
+    }
+}
@@ -0,0 +1,80 @@
+package edu.passau.apr.evaluator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Draws a stratified random sample of the positive tests for one candidate, as in GenProg's
+ * test-suite sampling. Each test class is a stratum and receives a share of the sample
+ * proportional to its size. The sample depends only on the run seed and the program hash, so it
+ * does not change with evaluation order or thread count.
+ */
+final class TestSampler {
+    private final long seed;
+    private final int sampleSize;
+    private final Map<String, List<String>> strata = new TreeMap<>();
+    private final int positiveCount;
+
+    TestSampler(long seed, int sampleSize, Set<String> positiveTestIds) {
+        this.seed = seed;
+        this.sampleSize = sampleSize;
+        this.positiveCount = positiveTestIds.size();
+        for (String testId : positiveTestIds) {
+            String testClass = testId.substring(0, Math.max(0, testId.indexOf('#')));
+            strata.computeIfAbsent(testClass, key -> new ArrayList<>()).add(testId);
+        }
+        strata.values().forEach(Collections::sort);
+    }
+
+    /**
+     * True when the sample is smaller than the positive suite, i.e. sampling saves any work.
+     */
+    boolean isActive() {
+        return sampleSize > 0 && sampleSize < positiveCount;
+    }
+
+    int getSampleSize() {
+        return sampleSize;
+    }
+
+    Set<String> sample(String programHash) {
+        Random random = new Random(seed ^ Long.parseUnsignedLong(programHash.substring(0, 16), 16));
+
+        // Largest-remainder allocation of the sample across strata.
+        List<String> classes = new ArrayList<>(strata.keySet());
+        int[] quota = new int[classes.size()];
+        double[] remainder = new double[classes.size()];
+        int allocated = 0;
+        for (int i = 0; i < classes.size(); i++) {
+            double share = (double) sampleSize * strata.get(classes.get(i)).size() / positiveCount;
+            quota[i] = (int) share;
+            remainder[i] = share - quota[i];
+            allocated += quota[i];
+        }
+        while (allocated < sampleSize) {
+            int best = 0;
+            for (int i = 1; i < classes.size(); i++) {
+                if (remainder[i] > remainder[best]) {
+                    best = i;
+                }
+            }
+            quota[best]++;
+            remainder[best] = -1.0;
+            allocated++;
+        }
+
+        Set<String> sample = new HashSet<>();
+        for (int i = 0; i < classes.size(); i++) {
+            List<String> tests = new ArrayList<>(strata.get(classes.get(i)));
+            Collections.shuffle(tests, random);
+            sample.addAll(tests.subList(0, Math.min(quota[i], tests.size())));
+        }
+        return sample;
+    }
+}
@@ -0,0 +1,147 @@
+package edu.passau.apr.evaluator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Entry point of a forked test worker JVM.
+ * The worker loads the precompiled test classes once and then serves requests from its parent
+ * over stdin/stdout until stdin is closed.
+ *
+ * <p>Protocol (all values written with {@link DataOutputStream}):
+ * <ul>
+ *   <li>worker → parent on startup: {@link #READY}</li>
+ *   <li>parent → worker: the {@link ReflectiveTestRunner.StagePlan} (first-stage test ids,
+ *       minimum first-stage passes, (test id, weight) pairs, the must-beat score, the selected
+ *       test ids and (test id, timeout in ms) pairs), then the class count and (class name,
+ *       byte length, bytes) per class</li>
+ *   <li>worker → parent: test count, then (test id, passed, elapsed ns, cut short) per test, then
+ *       the number of skipped tests and of threads still running: test threads that outlived
+ *       their timeout and threads the candidate started and left behind</li>
+ * </ul>
+ *
+ * <p>Usage: {@code TestWorkerMain <testClassesDir> <mainClassName> <testTimeoutSec> <testClass>...}
+ */
+public final class TestWorkerMain {
+    static final int READY = 0x41505257;
+    private static final String TEST_THREAD_PREFIX = "apr-test";
+
+    private TestWorkerMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path testClassesDir = Paths.get(args[0]);
+        String mainClassName = args[1];
+        int testTimeoutSec = Integer.parseInt(args[2]);
+        List<String> testClassNames = Arrays.asList(args).subList(3, args.length);
+
+        // The protocol owns the real stdout; anything the candidate or tests print is discarded.
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(silent);
+        System.setErr(silent);
+
+        Map<String, byte[]> testClassBytes = ClassFiles.readTestClasses(testClassesDir, mainClassName);
+        ReflectiveTestRunner runner = new ReflectiveTestRunner(new Watchdog(TEST_THREAD_PREFIX), testTimeoutSec);
+
+        out.writeInt(READY);
+        out.flush();
+
+        while (true) {
+            Map<String, byte[]> classBytes = new HashMap<>(testClassBytes);
+            ReflectiveTestRunner.StagePlan plan;
+            try {
+                int firstStageCount = in.readInt();
+                if (firstStageCount < 0) {
+                    break;
+                }
+                Set<String> firstStage = new HashSet<>();
+                for (int i = 0; i < firstStageCount; i++) {
+                    firstStage.add(in.readUTF());
+                }
+                int minFirstStagePasses = in.readInt();
+                int weightCount = in.readInt();
+                Map<String, Double> testWeights = new HashMap<>();
+                for (int i = 0; i < weightCount; i++) {
+                    testWeights.put(in.readUTF(), in.readDouble());
+                }
+                double mustBeat = in.readDouble();
+                int selectedCount = in.readInt();
+                Set<String> selectedTests = new HashSet<>();
+                for (int i = 0; i < selectedCount; i++) {
+                    selectedTests.add(in.readUTF());
+                }
+                int timeoutCount = in.readInt();
+                Map<String, Long> testTimeoutsMillis = new HashMap<>();
+                for (int i = 0; i < timeoutCount; i++) {
+                    testTimeoutsMillis.put(in.readUTF(), in.readLong());
+                }
+                plan = new ReflectiveTestRunner.StagePlan(firstStage, minFirstStagePasses, testWeights, mustBeat,
+                    selectedTests, testTimeoutsMillis);
+
+                int classCount = in.readInt();
+                for (int i = 0; i < classCount; i++) {
+                    String className = in.readUTF();
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    classBytes.put(className, bytes);
+                }
+            } catch (EOFException e) {
+                break;
+            }
+
+            Set<Thread> threadsBefore = Thread.getAllStackTraces().keySet();
+            ReflectiveTestRunner.Report report;
+            try (ByteArrayClassLoader classLoader = new ByteArrayClassLoader(
+                    new URL[0], TestWorkerMain.class.getClassLoader(), classBytes)) {
+                report = runner.run(classLoader, testClassNames, plan);
+            }
+
+            out.writeInt(report.outcomes().size());
+            for (ReflectiveTestRunner.Outcome outcome : report.outcomes()) {
+                out.writeUTF(outcome.testId());
+                out.writeBoolean(outcome.passed());
+                out.writeLong(outcome.elapsedNanos());
+                out.writeBoolean(outcome.cutShort());
+            }
+            out.writeInt(report.skippedTests());
+            out.writeInt(report.strandedThreads() + leftBehind(threadsBefore));
+            out.flush();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Counts threads started during a run that are still alive, other than the runner's own test
+     * threads. The worker has no runaway guard: a candidate that leaves threads behind gets its
+     * worker replaced instead, which stops them for good.
+     */
+    private static int leftBehind(Set<Thread> threadsBefore) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (!threadsBefore.contains(thread) && thread.isAlive() && !thread.getName().startsWith(TEST_THREAD_PREFIX)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,1248 @@
+package edu.passau.apr.evaluator;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.RecordDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.ArrayAccessExpr;
+import com.github.javaparser.ast.expr.ArrayCreationExpr;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.BooleanLiteralExpr;
+import com.github.javaparser.ast.expr.CastExpr;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.expr.DoubleLiteralExpr;
+import com.github.javaparser.ast.expr.EnclosedExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.InstanceOfExpr;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.LongLiteralExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.NullLiteralExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.ast.expr.SwitchExpr;
+import com.github.javaparser.ast.expr.TextBlockLiteralExpr;
+import com.github.javaparser.ast.expr.ThisExpr;
+import com.github.javaparser.ast.expr.TypePatternExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.AssertStmt;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.BreakStmt;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.ContinueStmt;
+import com.github.javaparser.ast.stmt.DoStmt;
+import com.github.javaparser.ast.stmt.EmptyStmt;
+import com.github.javaparser.ast.stmt.ExplicitConstructorInvocationStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.LabeledStmt;
+import com.github.javaparser.ast.stmt.LocalClassDeclarationStmt;
+import com.github.javaparser.ast.stmt.ReturnStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import com.github.javaparser.ast.stmt.SwitchStmt;
+import com.github.javaparser.ast.stmt.SynchronizedStmt;
+import com.github.javaparser.ast.stmt.ThrowStmt;
+import com.github.javaparser.ast.stmt.TryStmt;
+import com.github.javaparser.ast.stmt.WhileStmt;
+import com.github.javaparser.ast.stmt.YieldStmt;
+import com.github.javaparser.ast.type.ArrayType;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.PrimitiveType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.TypeParameter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Static check that rejects candidates javac would certainly refuse, without running javac.
+ * Only callables whose body differs from the original are inspected; the original compiles, so
+ * everything else is known to be fine.
+ *
+ * <p>Names are resolved lexically (locals, parameters, fields of enclosing types) and types are
+ * inferred for literals, declared variables and a few well-known library methods. A candidate is
+ * rejected if it no longer parses, or for a variable used outside its scope or in its own
+ * initializer, a local declared twice, an unreachable statement, a missing or misplaced return, a
+ * stray break or continue, an expression that is not a statement, a void value or a primitive
+ * dereferenced in an expression, or an operand or assignment whose inferred type cannot fit.
+ * Whatever cannot be decided this way, such as inherited members, generics or overloads, is
+ * accepted and left to javac.</p>
+ */
+public final class TypeCheckFilter {
+
+    // OBJECT is a reference type known by name that is neither String nor a boxed primitive.
+    private enum Kind { BOOLEAN, NUMERIC, STRING, NULL, OBJECT, VOID, UNKNOWN }
+
+    // Numeric rank orders primitive widening: byte < short < int < long < float < double; 0 = boxed.
+    private record ValueType(Kind kind, int rank, boolean primitive, String name) {
+        boolean is(Kind... kinds) {
+            for (Kind candidate : kinds) {
+                if (kind == candidate) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Every value converts to Object; other known reference types accept no primitive or String.
+        boolean isSpecificObject() {
+            return kind == Kind.OBJECT && !"Object".equals(name);
+        }
+    }
+
+    private static final ValueType UNKNOWN = new ValueType(Kind.UNKNOWN, 0, false, null);
+    private static final ValueType BOOLEAN = new ValueType(Kind.BOOLEAN, 0, true, "boolean");
+    private static final ValueType CHAR = new ValueType(Kind.UNKNOWN, 0, true, "char");
+    private static final ValueType INT = new ValueType(Kind.NUMERIC, 3, true, "int");
+    private static final ValueType LONG = new ValueType(Kind.NUMERIC, 4, true, "long");
+    private static final ValueType FLOAT = new ValueType(Kind.NUMERIC, 5, true, "float");
+    private static final ValueType DOUBLE = new ValueType(Kind.NUMERIC, 6, true, "double");
+    private static final ValueType STRING = new ValueType(Kind.STRING, 0, false, "String");
+    private static final ValueType NULL = new ValueType(Kind.NULL, 0, false, null);
+    private static final ValueType VOID = new ValueType(Kind.VOID, 0, false, "void");
+    private static final ValueType ARRAY = new ValueType(Kind.OBJECT, 0, false, "[]");
+
+    // Library types that no primitive, boxed value or String converts to (Object aside).
+    private static final Set<String> OBJECT_TYPES = Set.of("Object", "StringBuilder", "StringBuffer", "Iterator",
+        "Optional", "Stream", "List", "ArrayList", "LinkedList", "Map", "HashMap", "LinkedHashMap", "TreeMap", "Set",
+        "HashSet", "LinkedHashSet", "TreeSet", "Collection", "Queue", "Deque", "ArrayDeque");
+    private static final Set<String> COLLECTION_TYPES = Set.of("List", "ArrayList", "LinkedList", "Map", "HashMap",
+        "LinkedHashMap", "TreeMap", "Set", "HashSet", "LinkedHashSet", "TreeSet", "Collection", "Queue", "Deque",
+        "ArrayDeque");
+
+    private static final Set<String> STRING_TO_STRING = Set.of("substring", "trim", "strip", "toUpperCase",
+        "toLowerCase", "concat", "replace", "replaceAll", "repeat", "intern");
+    private static final Set<String> STRING_TO_INT = Set.of("length", "indexOf", "lastIndexOf", "compareTo",
+        "compareToIgnoreCase");
+    private static final Set<String> STRING_TO_BOOLEAN = Set.of("isEmpty", "isBlank", "contains", "startsWith",
+        "endsWith", "equalsIgnoreCase", "matches");
+    private static final Set<String> INT_UTILITIES = Set.of("Integer.compare", "Integer.parseInt", "Integer.signum",
+        "Long.compare", "Double.compare", "Boolean.compare", "Character.compare", "Objects.hash");
+    private static final Set<String> STRING_UTILITIES = Set.of("String.valueOf", "String.join", "String.format",
+        "Integer.toString", "Long.toString", "Double.toString", "Objects.toString");
+    private static final Set<String> BOOLEAN_UTILITIES = Set.of("Boolean.parseBoolean", "Objects.equals",
+        "Objects.isNull", "Objects.nonNull", "Character.isDigit", "Character.isLetter", "Character.isLetterOrDigit",
+        "Character.isWhitespace", "Character.isUpperCase", "Character.isLowerCase");
+
+    // A name that may refer to something we cannot see, such as an inherited or statically imported member.
+    private static final Object UNCERTAIN = new Object();
+
+    // The default level is Java 11, which would reject patterns and switch expressions javac 17 accepts.
+    private static final ParserConfiguration PARSER_CONFIGURATION = new ParserConfiguration()
+        .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17);
+
+    private final List<BodyDeclaration<?>> baseCallables;
+    private final boolean enforcing;
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong rejectedFailing = new AtomicLong();
+    private final AtomicLong acceptedFailing = new AtomicLong();
+
+    /**
+     * @param baseSource the original program, printed the way candidates are
+     * @param enforcing  true to skip javac for rejected candidates, false to only compare with javac
+     */
+    TypeCheckFilter(String baseSource, boolean enforcing) {
+        this.baseCallables = callables(parse(baseSource));
+        this.enforcing = enforcing;
+    }
+
+    private static CompilationUnit parse(String source) {
+        ParseResult<CompilationUnit> result = new JavaParser(PARSER_CONFIGURATION).parse(source);
+        if (!result.isSuccessful() || result.getResult().isEmpty()) {
+            throw new IllegalArgumentException(result.getProblems().toString());
+        }
+        return result.getResult().get();
+    }
+
+    boolean isEnforcing() {
+        return enforcing;
+    }
+
+    boolean rejects(String candidateSource) {
+        return problem(candidateSource) != null;
+    }
+
+    /**
+     * Counts one checked candidate. {@code compiles} is javac's verdict, or null when javac did not run.
+     */
+    void record(boolean flagged, Boolean compiles) {
+        checked.incrementAndGet();
+        if (flagged) {
+            rejected.incrementAndGet();
+            if (Boolean.FALSE.equals(compiles)) {
+                rejectedFailing.incrementAndGet();
+            }
+        } else if (Boolean.FALSE.equals(compiles)) {
+            acceptedFailing.incrementAndGet();
+        }
+    }
+
+    /**
+     * Describes the first certain compile error in a changed callable, or returns null if none is found.
+     */
+    String problem(String candidateSource) {
+        CompilationUnit candidate;
+        try {
+            candidate = parse(candidateSource);
+        } catch (RuntimeException e) {
+            // The printer can emit token sequences no Java parser accepts, such as "i++++" or "a + b;".
+            return "does not parse";
+        }
+        List<BodyDeclaration<?>> candidateCallables = callables(candidate);
+        if (candidateCallables.size() != baseCallables.size()) {
+            return null;
+        }
+        Scope scope = null;
+        for (int i = 0; i < candidateCallables.size(); i++) {
+            BodyDeclaration<?> callable = candidateCallables.get(i);
+            if (callable.equals(baseCallables.get(i))) {
+                continue;
+            }
+            if (scope == null) {
+                scope = new Scope(candidate);
+            }
+            for (Node node : callable.findAll(Node.class)) {
+                String problem = scope.check(node);
+                if (problem != null) {
+                    return problem;
+                }
+            }
+            if (callable instanceof MethodDeclaration method && method.getBody().isPresent()
+                    && !method.getType().isVoidType() && scope.completes(method.getBody().get()) == Completion.YES) {
+                return "missing return statement in " + method.getNameAsString();
+            }
+        }
+        return null;
+    }
+
+    private static List<BodyDeclaration<?>> callables(CompilationUnit cu) {
+        List<BodyDeclaration<?>> callables = new ArrayList<>();
+        for (BodyDeclaration<?> declaration : cu.findAll(BodyDeclaration.class)) {
+            if (declaration instanceof CallableDeclaration || declaration instanceof InitializerDeclaration) {
+                callables.add(declaration);
+            }
+        }
+        return callables;
+    }
+
+    private enum Completion { YES, NO, MAYBE }
+
+    /**
+     * Name and type information of one candidate program.
+     */
+    private static final class Scope {
+        private final Set<String> variableNames = new HashSet<>();
+        private final Set<String> patternNames = new HashSet<>();
+        private final Set<String> typeParameterNames = new HashSet<>();
+        private final Map<String, TypeDeclaration<?>> types = new HashMap<>();
+        private final Set<String> staticImports = new HashSet<>();
+        private boolean staticWildcardImport;
+        private final Map<String, Set<String>> methodReturnTypes = new HashMap<>();
+        private final Map<String, Type> methodTypes = new HashMap<>();
+
+        Scope(CompilationUnit cu) {
+            cu.findAll(VariableDeclarator.class).forEach(variable -> variableNames.add(variable.getNameAsString()));
+            cu.findAll(Parameter.class).forEach(parameter -> variableNames.add(parameter.getNameAsString()));
+            cu.findAll(TypePatternExpr.class).forEach(pattern -> patternNames.add(pattern.getNameAsString()));
+            cu.findAll(TypeParameter.class).forEach(parameter -> typeParameterNames.add(parameter.getNameAsString()));
+            Set<String> ambiguousTypes = new HashSet<>();
+            for (TypeDeclaration<?> type : cu.findAll(TypeDeclaration.class)) {
+                if (types.putIfAbsent(type.getNameAsString(), type) != null) {
+                    ambiguousTypes.add(type.getNameAsString());
+                }
+            }
+            types.keySet().removeAll(ambiguousTypes);
+            for (ImportDeclaration importDeclaration : cu.getImports()) {
+                if (importDeclaration.isStatic()) {
+                    if (importDeclaration.isAsterisk()) {
+                        staticWildcardImport = true;
+                    } else {
+                        staticImports.add(importDeclaration.getName().getIdentifier());
+                    }
+                }
+            }
+            for (MethodDeclaration method : cu.findAll(MethodDeclaration.class)) {
+                methodReturnTypes.computeIfAbsent(method.getNameAsString(), name -> new HashSet<>())
+                    .add(method.getType().asString());
+                methodTypes.put(method.getNameAsString(), method.getType());
+            }
+        }
+
+        String check(Node node) {
+            if (node instanceof NameExpr name) {
+                return checkName(name);
+            }
+            if (node instanceof VariableDeclarator variable) {
+                return checkDeclaration(variable, variable.getNameAsString(), variable.getType(),
+                    variable.getInitializer().orElse(null));
+            }
+            if (node instanceof Parameter parameter && parameter.getParentNode().orElse(null) instanceof CatchClause) {
+                return checkDeclaration(parameter, parameter.getNameAsString(), null, null);
+            }
+            if (node instanceof Parameter parameter && parameter.getParentNode().orElse(null) instanceof LambdaExpr) {
+                return checkDeclaration(parameter, parameter.getNameAsString(), null, null);
+            }
+            if (node instanceof BlockStmt block) {
+                return checkReachable(block.getStatements());
+            }
+            if (node instanceof SwitchEntry entry) {
+                return checkReachable(entry.getStatements());
+            }
+            if (node instanceof ExpressionStmt statement && !(statement.getParentNode().orElse(null) instanceof LambdaExpr)
+                    && !isSwitchExpressionResult(statement)) {
+                return checkStatementExpression(statement.getExpression());
+            }
+            if (node instanceof ReturnStmt returnStmt) {
+                return checkReturn(returnStmt);
+            }
+            if (node instanceof BreakStmt breakStmt) {
+                return checkJump(breakStmt, breakStmt.getLabel().map(label -> label.asString()).orElse(null), true);
+            }
+            if (node instanceof ContinueStmt continueStmt) {
+                return checkJump(continueStmt, continueStmt.getLabel().map(label -> label.asString()).orElse(null), false);
+            }
+            if (node instanceof IfStmt ifStmt) {
+                return requireCondition(ifStmt.getCondition());
+            }
+            if (node instanceof WhileStmt whileStmt) {
+                return requireCondition(whileStmt.getCondition());
+            }
+            if (node instanceof DoStmt doStmt) {
+                return requireCondition(doStmt.getCondition());
+            }
+            if (node instanceof ForStmt forStmt && forStmt.getCompare().isPresent()) {
+                return requireCondition(forStmt.getCompare().get());
+            }
+            if (node instanceof ConditionalExpr conditional) {
+                return requireCondition(conditional.getCondition());
+            }
+            if (node instanceof UnaryExpr unary) {
+                return checkUnary(unary);
+            }
+            if (node instanceof BinaryExpr binary) {
+                return checkBinary(binary);
+            }
+            if (node instanceof AssignExpr assign) {
+                return checkAssign(assign);
+            }
+            if (node instanceof ArrayAccessExpr access) {
+                return checkArrayAccess(access);
+            }
+            if (node instanceof MethodCallExpr call) {
+                return checkCall(call);
+            }
+            if (node instanceof FieldAccessExpr field) {
+                return checkDereference(field.getScope());
+            }
+            return null;
+        }
+
+        private String checkName(NameExpr name) {
+            String identifier = name.getNameAsString();
+            if (!variableNames.contains(identifier) || patternNames.contains(identifier)) {
+                // Not a variable anywhere in the program: a type, a package or something we cannot see.
+                return null;
+            }
+            Object found = lookup(name, identifier, null, false);
+            if (found == null) {
+                return "cannot find symbol " + identifier;
+            }
+            if (found instanceof VariableDeclarator variable && variable.isAncestorOf(name)
+                    && variable.getParentNode().orElse(null) instanceof VariableDeclarationExpr) {
+                return "variable " + identifier + " might not have been initialized";
+            }
+            return null;
+        }
+
+        private String checkDeclaration(Node declaration, String name, Type type, Expression initializer) {
+            Node owner = declaration.getParentNode().orElse(null);
+            boolean local = owner instanceof VariableDeclarationExpr || declaration instanceof Parameter;
+            if (local && !patternNames.contains(name) && lookup(declaration, name, declaration, true) != null) {
+                return "variable " + name + " is already defined";
+            }
+            if (type != null && initializer != null) {
+                return checkAssignable(valueType(type), valueOf(initializer), "initializer of " + name);
+            }
+            return null;
+        }
+
+        private String checkReachable(List<Statement> statements) {
+            for (int i = 0; i + 1 < statements.size(); i++) {
+                if (completes(statements.get(i)) == Completion.NO) {
+                    return "unreachable statement after " + statements.get(i).getClass().getSimpleName();
+                }
+            }
+            return null;
+        }
+
+        // The parser wraps the value of a "case X -> value;" rule of a switch expression in a statement.
+        private boolean isSwitchExpressionResult(ExpressionStmt statement) {
+            return statement.getParentNode().orElse(null) instanceof SwitchEntry entry
+                && entry.getType() == SwitchEntry.Type.EXPRESSION
+                && entry.getParentNode().orElse(null) instanceof SwitchExpr;
+        }
+
+        private String checkStatementExpression(Expression expression) {
+            boolean statementExpression = expression instanceof AssignExpr || expression instanceof MethodCallExpr
+                || expression instanceof ObjectCreationExpr || expression instanceof VariableDeclarationExpr
+                || (expression instanceof UnaryExpr unary && isIncrementOrDecrement(unary.getOperator()));
+            return statementExpression ? null : "not a statement: " + expression.getClass().getSimpleName();
+        }
+
+        private String checkReturn(ReturnStmt returnStmt) {
+            Node function = enclosingFunction(returnStmt);
+            if (function instanceof InitializerDeclaration) {
+                return "return outside method";
+            }
+            if (function instanceof ConstructorDeclaration && returnStmt.getExpression().isPresent()) {
+                return "constructor returns a value";
+            }
+            if (!(function instanceof MethodDeclaration method)) {
+                return null;
+            }
+            if (method.getType().isVoidType()) {
+                return returnStmt.getExpression().isPresent() ? "void method returns a value" : null;
+            }
+            if (returnStmt.getExpression().isEmpty()) {
+                return "missing return value";
+            }
+            return checkAssignable(valueType(method.getType()), valueOf(returnStmt.getExpression().get()),
+                "return value of " + method.getNameAsString());
+        }
+
+        private String checkJump(Statement jump, String label, boolean isBreak) {
+            Node node = jump.getParentNode().orElse(null);
+            while (node != null && !isFunctionBoundary(node)) {
+                if (node instanceof SwitchExpr) {
+                    return null;
+                }
+                if (label != null) {
+                    if (node instanceof LabeledStmt labeled && labeled.getLabel().asString().equals(label)) {
+                        return null;
+                    }
+                } else if (node instanceof ForStmt || node instanceof ForEachStmt || node instanceof WhileStmt
+                        || node instanceof DoStmt || (isBreak && node instanceof SwitchStmt)) {
+                    return null;
+                }
+                node = node.getParentNode().orElse(null);
+            }
+            return (isBreak ? "break" : "continue") + " outside of " + (label != null ? "label " + label : "loop");
+        }
+
+        private String requireCondition(Expression condition) {
+            return notBoolean(valueOf(condition)) ? "condition is not boolean" : null;
+        }
+
+        private String checkUnary(UnaryExpr unary) {
+            ValueType operand = valueOf(unary.getExpression());
+            switch (unary.getOperator()) {
+                case LOGICAL_COMPLEMENT:
+                    return notBoolean(operand) ? "operand of ! is not boolean" : null;
+                case PLUS:
+                case MINUS:
+                case BITWISE_COMPLEMENT:
+                    return notNumeric(operand) ? "operand of " + unary.getOperator() + " is not numeric" : null;
+                default:
+                    if (!isVariable(unary.getExpression())) {
+                        return "operand of " + unary.getOperator() + " is not a variable";
+                    }
+                    return notNumeric(operand) ? "operand of " + unary.getOperator() + " is not numeric" : null;
+            }
+        }
+
+        private String checkBinary(BinaryExpr binary) {
+            ValueType left = valueOf(binary.getLeft());
+            ValueType right = valueOf(binary.getRight());
+            String operator = binary.getOperator().asString();
+            switch (binary.getOperator()) {
+                case AND:
+                case OR:
+                    return notBoolean(left) || notBoolean(right) ? "operand of " + operator + " is not boolean" : null;
+                case PLUS:
+                    if (left.is(Kind.VOID) || right.is(Kind.VOID)) {
+                        return "bad operand types for +";
+                    }
+                    // Anything concatenates with a String, and an operand of unknown type may be one.
+                    if (left.is(Kind.STRING, Kind.UNKNOWN) || right.is(Kind.STRING, Kind.UNKNOWN)) {
+                        return null;
+                    }
+                    return left.is(Kind.NUMERIC) && right.is(Kind.NUMERIC) ? null : "bad operand types for +";
+                case EQUALS:
+                case NOT_EQUALS:
+                    return comparable(left, right) && comparable(right, left) ? null : "incomparable types for " + operator;
+                case BINARY_AND:
+                case BINARY_OR:
+                case XOR:
+                    if (left.is(Kind.STRING, Kind.NULL, Kind.OBJECT, Kind.VOID)
+                            || right.is(Kind.STRING, Kind.NULL, Kind.OBJECT, Kind.VOID)) {
+                        return "bad operand types for " + operator;
+                    }
+                    return (left.is(Kind.BOOLEAN) && right.is(Kind.NUMERIC)) || (left.is(Kind.NUMERIC) && right.is(Kind.BOOLEAN))
+                        ? "bad operand types for " + operator : null;
+                default:
+                    return notNumeric(left) || notNumeric(right) ? "bad operand types for " + operator : null;
+            }
+        }
+
+        private boolean notBoolean(ValueType type) {
+            return type.is(Kind.NUMERIC, Kind.STRING, Kind.NULL, Kind.OBJECT, Kind.VOID);
+        }
+
+        private boolean notNumeric(ValueType type) {
+            return type.is(Kind.BOOLEAN, Kind.STRING, Kind.NULL, Kind.OBJECT, Kind.VOID);
+        }
+
+        private boolean comparable(ValueType a, ValueType b) {
+            if (a.is(Kind.VOID)) {
+                return false;
+            }
+            if (a.is(Kind.BOOLEAN)) {
+                return !b.is(Kind.NUMERIC, Kind.STRING) && !b.isSpecificObject() && !(a.primitive() && b.is(Kind.NULL));
+            }
+            if (a.is(Kind.NUMERIC)) {
+                return !b.is(Kind.STRING) && !b.isSpecificObject() && !(a.primitive() && b.is(Kind.NULL));
+            }
+            if (a.is(Kind.STRING)) {
+                return !b.isSpecificObject();
+            }
+            return true;
+        }
+
+        private String checkAssign(AssignExpr assign) {
+            if (!isVariable(assign.getTarget())) {
+                return "assignment to a non-variable";
+            }
+            if (assign.getOperator() != AssignExpr.Operator.ASSIGN) {
+                return null;
+            }
+            return checkAssignable(valueOf(assign.getTarget()), valueOf(assign.getValue()), "assignment");
+        }
+
+        private String checkArrayAccess(ArrayAccessExpr access) {
+            ValueType index = valueOf(access.getIndex());
+            if (notNumeric(index) || (index.primitive() && index.rank() > INT.rank())) {
+                return "array index is not an int";
+            }
+            ValueType array = valueOf(access.getName());
+            if (array.is(Kind.BOOLEAN, Kind.NUMERIC, Kind.STRING, Kind.VOID) || array.primitive()
+                    || (array.is(Kind.OBJECT) && array != ARRAY)) {
+                return "array required";
+            }
+            return null;
+        }
+
+        private String checkCall(MethodCallExpr call) {
+            Node parent = call.getParentNode().orElse(null);
+            // Statement expressions, including for-loop init and update, may discard a void result.
+            if (valueOfCall(call).is(Kind.VOID) && !(parent instanceof ExpressionStmt) && !(parent instanceof ForStmt)) {
+                return "void value of " + call.getNameAsString() + " used in an expression";
+            }
+            return call.getScope().map(this::checkDereference).orElse(null);
+        }
+
+        private String checkDereference(Expression scope) {
+            ValueType type = valueOf(scope);
+            return type.primitive() || type.is(Kind.VOID) ? type.name() + " cannot be dereferenced" : null;
+        }
+
+        private String checkAssignable(ValueType target, ValueType value, String what) {
+            if (value.is(Kind.VOID)) {
+                return "void value in " + what;
+            }
+            boolean fits = switch (target.kind()) {
+                case BOOLEAN -> !value.is(Kind.NUMERIC, Kind.STRING) && !value.isSpecificObject()
+                    && !(target.primitive() && value.is(Kind.NULL));
+                case NUMERIC -> !value.is(Kind.BOOLEAN, Kind.STRING) && !value.isSpecificObject()
+                    && !(target.primitive() && value.is(Kind.NULL))
+                    && !(target.primitive() && value.primitive() && target.rank() >= INT.rank() && value.rank() > target.rank());
+                case STRING -> !value.is(Kind.BOOLEAN, Kind.NUMERIC) && !value.isSpecificObject();
+                case OBJECT -> !target.isSpecificObject() || !value.is(Kind.BOOLEAN, Kind.NUMERIC, Kind.STRING);
+                default -> true;
+            };
+            return fits ? null : "incompatible types in " + what;
+        }
+
+        private boolean isVariable(Expression expression) {
+            Expression inner = expression;
+            while (inner instanceof EnclosedExpr enclosed) {
+                inner = enclosed.getInner();
+            }
+            return inner instanceof NameExpr || inner instanceof FieldAccessExpr || inner instanceof ArrayAccessExpr;
+        }
+
+        private ValueType valueOf(Expression expression) {
+            if (expression instanceof BooleanLiteralExpr) {
+                return BOOLEAN;
+            }
+            if (expression instanceof IntegerLiteralExpr) {
+                return INT;
+            }
+            if (expression instanceof LongLiteralExpr) {
+                return LONG;
+            }
+            if (expression instanceof DoubleLiteralExpr literal) {
+                String value = literal.getValue();
+                return value.endsWith("f") || value.endsWith("F") ? FLOAT : DOUBLE;
+            }
+            if (expression instanceof StringLiteralExpr || expression instanceof TextBlockLiteralExpr) {
+                return STRING;
+            }
+            if (expression instanceof NullLiteralExpr) {
+                return NULL;
+            }
+            if (expression instanceof EnclosedExpr enclosed) {
+                return valueOf(enclosed.getInner());
+            }
+            if (expression instanceof NameExpr name) {
+                Type type = declaredType(name);
+                return type != null ? valueType(type) : UNKNOWN;
+            }
+            if (expression instanceof InstanceOfExpr) {
+                return BOOLEAN;
+            }
+            if (expression instanceof CastExpr cast) {
+                return valueType(cast.getType());
+            }
+            if (expression instanceof AssignExpr assign) {
+                return valueOf(assign.getTarget());
+            }
+            if (expression instanceof ObjectCreationExpr creation) {
+                return creation.getAnonymousClassBody().isPresent() ? UNKNOWN : valueType(creation.getType());
+            }
+            if (expression instanceof ArrayCreationExpr) {
+                return ARRAY;
+            }
+            if (expression instanceof ArrayAccessExpr access) {
+                Type type = declaredType(access.getName());
+                return type instanceof ArrayType arrayType ? valueType(arrayType.getComponentType()) : UNKNOWN;
+            }
+            if (expression instanceof FieldAccessExpr field) {
+                return valueOfField(field);
+            }
+            if (expression instanceof MethodCallExpr call) {
+                return valueOfCall(call);
+            }
+            if (expression instanceof UnaryExpr unary) {
+                if (unary.getOperator() == UnaryExpr.Operator.LOGICAL_COMPLEMENT) {
+                    return BOOLEAN;
+                }
+                ValueType operand = valueOf(unary.getExpression());
+                return isIncrementOrDecrement(unary.getOperator()) ? promoted(operand, operand) : promoted(operand, INT);
+            }
+            if (expression instanceof BinaryExpr binary) {
+                return valueOfBinary(binary);
+            }
+            if (expression instanceof ConditionalExpr conditional) {
+                ValueType then = valueOf(conditional.getThenExpr());
+                ValueType otherwise = valueOf(conditional.getElseExpr());
+                return then.kind() == otherwise.kind() && (then.is(Kind.BOOLEAN, Kind.STRING)) ? then : UNKNOWN;
+            }
+            return UNKNOWN;
+        }
+
+        private ValueType valueOfBinary(BinaryExpr binary) {
+            ValueType left = valueOf(binary.getLeft());
+            ValueType right = valueOf(binary.getRight());
+            switch (binary.getOperator()) {
+                case OR:
+                case AND:
+                case EQUALS:
+                case NOT_EQUALS:
+                case LESS:
+                case GREATER:
+                case LESS_EQUALS:
+                case GREATER_EQUALS:
+                    return BOOLEAN;
+                case PLUS:
+                    if (left.is(Kind.STRING) || right.is(Kind.STRING)) {
+                        return STRING;
+                    }
+                    return promoted(left, right);
+                case BINARY_AND:
+                case BINARY_OR:
+                case XOR:
+                    if (left.is(Kind.BOOLEAN) && right.is(Kind.BOOLEAN)) {
+                        return BOOLEAN;
+                    }
+                    return promoted(left, right);
+                case LEFT_SHIFT:
+                case SIGNED_RIGHT_SHIFT:
+                case UNSIGNED_RIGHT_SHIFT:
+                    return promoted(left, INT);
+                default:
+                    return promoted(left, right);
+            }
+        }
+
+        /**
+         * Binary numeric promotion of two primitive operands, or unknown.
+         */
+        private ValueType promoted(ValueType left, ValueType right) {
+            if (!left.is(Kind.NUMERIC) || !right.is(Kind.NUMERIC) || !left.primitive() || !right.primitive()) {
+                return UNKNOWN;
+            }
+            int rank = Math.max(INT.rank(), Math.max(left.rank(), right.rank()));
+            return rank == INT.rank() ? INT : rank == LONG.rank() ? LONG : rank == FLOAT.rank() ? FLOAT : DOUBLE;
+        }
+
+        private ValueType valueOfField(FieldAccessExpr field) {
+            ValueType scope = valueOf(field.getScope());
+            if (scope == ARRAY) {
+                return field.getNameAsString().equals("length") ? INT : UNKNOWN;
+            }
+            TypeDeclaration<?> type = scope.is(Kind.OBJECT) ? types.get(scope.name()) : null;
+            if (type == null) {
+                return UNKNOWN;
+            }
+            for (FieldDeclaration declaration : type.getFields()) {
+                for (VariableDeclarator variable : declaration.getVariables()) {
+                    if (variable.getNameAsString().equals(field.getNameAsString())) {
+                        return valueType(variable.getType());
+                    }
+                }
+            }
+            return UNKNOWN;
+        }
+
+        private ValueType valueOfCall(MethodCallExpr call) {
+            String name = call.getNameAsString();
+            int arguments = call.getArguments().size();
+            if (name.equals("equals") && arguments == 1) {
+                return BOOLEAN;
+            }
+            if (name.equals("toString") && arguments == 0) {
+                return STRING;
+            }
+            if (name.equals("hashCode") && arguments == 0) {
+                return INT;
+            }
+            if (call.getScope().isEmpty() || call.getScope().get() instanceof ThisExpr) {
+                Set<String> returnTypes = methodReturnTypes.get(name);
+                if (returnTypes != null && returnTypes.size() == 1) {
+                    return valueType(methodTypes.get(name));
+                }
+                return UNKNOWN;
+            }
+            Expression scopeExpression = call.getScope().get();
+            String qualified = className(scopeExpression) + "." + name;
+            if (qualified.equals("Math.max") || qualified.equals("Math.min")) {
+                return arguments == 2 ? promoted(valueOf(call.getArgument(0)), valueOf(call.getArgument(1))) : UNKNOWN;
+            }
+            if (qualified.equals("Math.abs")) {
+                return arguments == 1 ? promoted(valueOf(call.getArgument(0)), INT) : UNKNOWN;
+            }
+            if (INT_UTILITIES.contains(qualified)) {
+                return INT;
+            }
+            if (STRING_UTILITIES.contains(qualified)) {
+                return STRING;
+            }
+            if (BOOLEAN_UTILITIES.contains(qualified)) {
+                return BOOLEAN;
+            }
+            String printed = scopeExpression.toString();
+            if ((printed.equals("System.out") || printed.equals("System.err")) && (name.equals("println") || name.equals("print"))) {
+                return VOID;
+            }
+            ValueType scope = valueOf(scopeExpression);
+            if (scope.is(Kind.STRING)) {
+                if (STRING_TO_STRING.contains(name)) {
+                    return STRING;
+                }
+                if (STRING_TO_INT.contains(name)) {
+                    return INT;
+                }
+                return STRING_TO_BOOLEAN.contains(name) ? BOOLEAN : UNKNOWN;
+            }
+            if (scope.is(Kind.OBJECT) && COLLECTION_TYPES.contains(scope.name())) {
+                if (name.equals("size") && arguments == 0) {
+                    return INT;
+                }
+                if ((name.equals("isEmpty") && arguments == 0)
+                        || ((name.equals("contains") || name.equals("containsKey")) && arguments == 1)) {
+                    return BOOLEAN;
+                }
+            }
+            if (scope.is(Kind.OBJECT) && scope.name().startsWith("StringBu") && name.equals("length") && arguments == 0) {
+                return INT;
+            }
+            return UNKNOWN;
+        }
+
+        /**
+         * The class a call is qualified with, or an empty string if the scope is not a plain class
+         * name; a variable named like a class shadows it.
+         */
+        private String className(Expression scope) {
+            if (scope instanceof NameExpr name && lookup(name, name.getNameAsString(), null, false) == null) {
+                return name.getNameAsString();
+            }
+            return "";
+        }
+
+        private ValueType valueType(Type type) {
+            if (type instanceof PrimitiveType primitive) {
+                return switch (primitive.getType()) {
+                    case BOOLEAN -> BOOLEAN;
+                    case BYTE -> new ValueType(Kind.NUMERIC, 1, true, "byte");
+                    case SHORT -> new ValueType(Kind.NUMERIC, 2, true, "short");
+                    case INT -> INT;
+                    case LONG -> LONG;
+                    case FLOAT -> FLOAT;
+                    case DOUBLE -> DOUBLE;
+                    case CHAR -> CHAR;
+                };
+            }
+            if (type instanceof ClassOrInterfaceType classType) {
+                String name = classType.getNameAsString();
+                if (typeParameterNames.contains(name)) {
+                    return UNKNOWN;
+                }
+                return switch (name) {
+                    case "String" -> STRING;
+                    case "Boolean" -> new ValueType(Kind.BOOLEAN, 0, false, name);
+                    case "Byte", "Short", "Integer", "Long", "Float", "Double" -> new ValueType(Kind.NUMERIC, 0, false, name);
+                    default -> OBJECT_TYPES.contains(name) || types.containsKey(name)
+                        ? new ValueType(Kind.OBJECT, 0, false, name) : UNKNOWN;
+                };
+            }
+            if (type instanceof ArrayType) {
+                return ARRAY;
+            }
+            return type.isVoidType() ? VOID : UNKNOWN;
+        }
+
+        /**
+         * Declared type of a simple variable name, or null when it is unknown.
+         */
+        private Type declaredType(Expression expression) {
+            if (!(expression instanceof NameExpr name) || patternNames.contains(name.getNameAsString())) {
+                return null;
+            }
+            Object found = lookup(name, name.getNameAsString(), null, false);
+            if (found instanceof VariableDeclarator variable && !variable.getType().isVarType()) {
+                return variable.getType();
+            }
+            if (found instanceof Parameter parameter && !parameter.getType().isUnknownType()
+                    && !parameter.getType().isVarType()) {
+                return parameter.isVarArgs() ? new ArrayType(parameter.getType().clone()) : parameter.getType();
+            }
+            return null;
+        }
+
+        /**
+         * Whether a statement can complete normally in the sense of JLS 14.22, where that is certain.
+         */
+        Completion completes(Statement statement) {
+            if (statement instanceof ReturnStmt || statement instanceof ThrowStmt || statement instanceof BreakStmt
+                    || statement instanceof ContinueStmt || statement instanceof YieldStmt) {
+                return Completion.NO;
+            }
+            if (statement instanceof ExpressionStmt || statement instanceof EmptyStmt || statement instanceof AssertStmt
+                    || statement instanceof LocalClassDeclarationStmt || statement instanceof ForEachStmt
+                    || statement instanceof ExplicitConstructorInvocationStmt) {
+                return Completion.YES;
+            }
+            if (statement instanceof BlockStmt block) {
+                return completesAll(block.getStatements());
+            }
+            if (statement instanceof IfStmt ifStmt) {
+                if (ifStmt.getElseStmt().isEmpty()) {
+                    return Completion.YES;
+                }
+                return either(completes(ifStmt.getThenStmt()), completes(ifStmt.getElseStmt().get()));
+            }
+            if (statement instanceof WhileStmt whileStmt) {
+                return loopCompletes(whileStmt, whileStmt.getCondition());
+            }
+            if (statement instanceof ForStmt forStmt) {
+                return loopCompletes(forStmt, forStmt.getCompare().orElse(null));
+            }
+            if (statement instanceof DoStmt doStmt) {
+                boolean conditionCanFail = completes(doStmt.getBody()) == Completion.YES && !isConstant(doStmt.getCondition());
+                return conditionCanFail || breaksOut(doStmt) ? Completion.YES : Completion.MAYBE;
+            }
+            if (statement instanceof SwitchStmt switchStmt) {
+                return switchCompletes(switchStmt);
+            }
+            if (statement instanceof TryStmt tryStmt) {
+                Completion result = completes(tryStmt.getTryBlock());
+                for (CatchClause catchClause : tryStmt.getCatchClauses()) {
+                    result = either(result, completes(catchClause.getBody()));
+                }
+                if (tryStmt.getFinallyBlock().isEmpty()) {
+                    return result;
+                }
+                Completion finallyBlock = completes(tryStmt.getFinallyBlock().get());
+                if (finallyBlock == Completion.NO || result == Completion.NO) {
+                    return Completion.NO;
+                }
+                return finallyBlock == Completion.YES ? result : Completion.MAYBE;
+            }
+            if (statement instanceof LabeledStmt labeled) {
+                Completion inner = completes(labeled.getStatement());
+                return inner == Completion.YES || breaksTo(labeled) ? Completion.YES : inner;
+            }
+            if (statement instanceof SynchronizedStmt synchronizedStmt) {
+                return completes(synchronizedStmt.getBody());
+            }
+            return Completion.MAYBE;
+        }
+
+        private Completion completesAll(List<Statement> statements) {
+            Completion result = Completion.YES;
+            for (Statement inner : statements) {
+                Completion completion = completes(inner);
+                if (completion == Completion.NO) {
+                    return Completion.NO;
+                }
+                if (completion == Completion.MAYBE) {
+                    result = Completion.MAYBE;
+                }
+            }
+            return result;
+        }
+
+        private static Completion either(Completion a, Completion b) {
+            if (a == Completion.YES || b == Completion.YES) {
+                return Completion.YES;
+            }
+            return a == Completion.NO && b == Completion.NO ? Completion.NO : Completion.MAYBE;
+        }
+
+        /**
+         * A while or for loop completes if its condition is not a constant or if a break leaves it.
+         */
+        private Completion loopCompletes(Statement loop, Expression condition) {
+            if (breaksOut(loop) || (condition != null && !isConstant(condition))) {
+                return Completion.YES;
+            }
+            boolean alwaysTrue = condition == null || (condition instanceof BooleanLiteralExpr literal && literal.getValue());
+            return alwaysTrue ? Completion.NO : Completion.MAYBE;
+        }
+
+        private Completion switchCompletes(SwitchStmt switchStmt) {
+            List<SwitchEntry> entries = switchStmt.getEntries();
+            boolean hasDefault = false;
+            for (SwitchEntry entry : entries) {
+                if (entry.getLabels().stream().anyMatch(label -> !label.isLiteralExpr() && !label.isNameExpr()
+                        && !label.isFieldAccessExpr())) {
+                    // Pattern switches must be exhaustive, which changes the rules; leave them to javac.
+                    return Completion.MAYBE;
+                }
+                hasDefault |= entry.isDefault() || entry.getLabels().isEmpty();
+            }
+            if (!hasDefault || entries.isEmpty() || breaksOut(switchStmt)) {
+                return Completion.YES;
+            }
+            SwitchEntry last = entries.get(entries.size() - 1);
+            if (last.getType() == SwitchEntry.Type.STATEMENT_GROUP) {
+                return completesAll(last.getStatements());
+            }
+            Completion result = Completion.NO;
+            for (SwitchEntry entry : entries) {
+                Completion rule = switch (entry.getType()) {
+                    case EXPRESSION -> Completion.YES;
+                    case THROWS_STATEMENT -> Completion.NO;
+                    default -> completesAll(entry.getStatements());
+                };
+                result = either(result, rule);
+            }
+            return result;
+        }
+
+        /**
+         * Whether an unlabeled break inside {@code target} leaves {@code target} itself.
+         */
+        private boolean breaksOut(Statement target) {
+            for (BreakStmt breakStmt : target.findAll(BreakStmt.class)) {
+                if (breakStmt.getLabel().isPresent()) {
+                    continue;
+                }
+                Node node = breakStmt.getParentNode().orElse(null);
+                while (node != null && node != target && !isFunctionBoundary(node) && !isBreakTarget(node)) {
+                    node = node.getParentNode().orElse(null);
+                }
+                if (node == target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean breaksTo(LabeledStmt labeled) {
+            String label = labeled.getLabel().asString();
+            for (BreakStmt breakStmt : labeled.findAll(BreakStmt.class)) {
+                if (breakStmt.getLabel().map(name -> name.asString().equals(label)).orElse(false)
+                        && enclosingFunction(breakStmt) == enclosingFunction(labeled)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Whether a condition may be a compile-time constant, which flow analysis treats specially.
+         * It certainly is not once it calls a method or reads a parameter or non-final variable.
+         */
+        private boolean isConstant(Expression expression) {
+            for (Node node : expression.findAll(Node.class)) {
+                if (node instanceof MethodCallExpr || node instanceof ObjectCreationExpr || node instanceof ArrayAccessExpr
+                        || node instanceof ArrayCreationExpr || node instanceof AssignExpr || node instanceof InstanceOfExpr
+                        || (node instanceof UnaryExpr unary && isIncrementOrDecrement(unary.getOperator()))) {
+                    return false;
+                }
+                if (node instanceof NameExpr name) {
+                    Object found = lookup(name, name.getNameAsString(), null, false);
+                    if (found instanceof Parameter || (found instanceof VariableDeclarator variable && !isFinal(variable))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static boolean isFinal(VariableDeclarator variable) {
+            Node owner = variable.getParentNode().orElse(null);
+            if (owner instanceof VariableDeclarationExpr declaration) {
+                return declaration.isFinal();
+            }
+            return !(owner instanceof FieldDeclaration field) || field.isFinal();
+        }
+
+        /**
+         * Finds the declaration a simple name refers to at {@code from}: a {@link VariableDeclarator},
+         * a {@link Parameter}, {@link #UNCERTAIN}, or null if none is in scope. With
+         * {@code localsOnly}, fields are not considered and the search stops at the enclosing type.
+         * {@code self} is never returned.
+         */
+        private Object lookup(Node from, String name, Node self, boolean localsOnly) {
+            Node child = from;
+            Node parent = from.getParentNode().orElse(null);
+            while (parent != null) {
+                Object found = declaredIn(parent, child, name, self);
+                if (found != null) {
+                    return found;
+                }
+                if (parent instanceof ObjectCreationExpr || parent instanceof TypeDeclaration) {
+                    if (localsOnly) {
+                        return null;
+                    }
+                    if (parent instanceof ObjectCreationExpr creation && creation.getAnonymousClassBody().isPresent()
+                            && child instanceof BodyDeclaration) {
+                        return UNCERTAIN;
+                    }
+                    if (parent instanceof TypeDeclaration<?> type) {
+                        Object member = member(type, name);
+                        if (member != null) {
+                            return member;
+                        }
+                    }
+                }
+                if (parent instanceof CompilationUnit && (staticWildcardImport || staticImports.contains(name))) {
+                    return UNCERTAIN;
+                }
+                child = parent;
+                parent = parent.getParentNode().orElse(null);
+            }
+            return null;
+        }
+
+        private Object member(TypeDeclaration<?> type, String name) {
+            for (FieldDeclaration field : type.getFields()) {
+                for (VariableDeclarator variable : field.getVariables()) {
+                    if (variable.getNameAsString().equals(name)) {
+                        return variable;
+                    }
+                }
+            }
+            if (type instanceof RecordDeclaration record) {
+                for (Parameter component : record.getParameters()) {
+                    if (component.getNameAsString().equals(name)) {
+                        return component;
+                    }
+                }
+            }
+            if (type instanceof EnumDeclaration enumDeclaration) {
+                boolean constant = enumDeclaration.getEntries().stream()
+                    .anyMatch(entry -> entry.getNameAsString().equals(name));
+                return constant || !enumDeclaration.getImplementedTypes().isEmpty() ? UNCERTAIN : null;
+            }
+            if (type instanceof ClassOrInterfaceDeclaration classDeclaration
+                    && (!classDeclaration.getExtendedTypes().isEmpty() || !classDeclaration.getImplementedTypes().isEmpty())) {
+                return UNCERTAIN;
+            }
+            if (type instanceof RecordDeclaration record && !record.getImplementedTypes().isEmpty()) {
+                return UNCERTAIN;
+            }
+            return null;
+        }
+
+        /**
+         * Local declarations of {@code parent} that are visible inside its child {@code child}.
+         */
+        private Object declaredIn(Node parent, Node child, String name, Node self) {
+            if (parent instanceof BlockStmt block) {
+                return declaredBefore(block.getStatements(), child, name, self);
+            }
+            if (parent instanceof SwitchEntry entry) {
+                return declaredBefore(entry.getStatements(), child, name, self);
+            }
+            if (parent instanceof SwitchStmt switchStmt && child instanceof SwitchEntry) {
+                // A switch block is one scope: earlier groups' locals are visible in later ones.
+                for (SwitchEntry entry : switchStmt.getEntries()) {
+                    if (entry == child) {
+                        break;
+                    }
+                    Object found = declaredBefore(entry.getStatements(), null, name, self);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+                return null;
+            }
+            if (parent instanceof ForStmt forStmt) {
+                for (Expression initialization : forStmt.getInitialization()) {
+                    Object found = declaredBy(initialization, name, self);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+                return null;
+            }
+            if (parent instanceof ForEachStmt forEach && child != forEach.getIterable()) {
+                return declaredBy(forEach.getVariable(), name, self);
+            }
+            if (parent instanceof CatchClause catchClause) {
+                return matches(catchClause.getParameter(), name, self);
+            }
+            if (parent instanceof TryStmt tryStmt) {
+                for (Expression resource : tryStmt.getResources()) {
+                    Object found = declaredBy(resource, name, self);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+                return null;
+            }
+            if (parent instanceof LambdaExpr lambda) {
+                for (Parameter parameter : lambda.getParameters()) {
+                    Object found = matches(parameter, name, self);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+                return null;
+            }
+            if (parent instanceof CallableDeclaration<?> callable) {
+                for (Parameter parameter : callable.getParameters()) {
+                    Object found = matches(parameter, name, self);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Declarations among {@code statements} up to and including {@code child} (all if null).
+         */
+        private Object declaredBefore(List<Statement> statements, Node child, String name, Node self) {
+            for (Statement statement : statements) {
+                if (statement instanceof ExpressionStmt expressionStmt) {
+                    Object found = declaredBy(expressionStmt.getExpression(), name, self);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+                if (statement == child) {
+                    break;
+                }
+            }
+            return null;
+        }
+
+        private Object declaredBy(Expression expression, String name, Node self) {
+            if (expression instanceof VariableDeclarationExpr declaration) {
+                for (VariableDeclarator variable : declaration.getVariables()) {
+                    if (variable != self && variable.getNameAsString().equals(name)) {
+                        return variable;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Object matches(Parameter parameter, String name, Node self) {
+            return parameter != self && parameter.getNameAsString().equals(name) ? parameter : null;
+        }
+
+        private static boolean isIncrementOrDecrement(UnaryExpr.Operator operator) {
+            return operator == UnaryExpr.Operator.PREFIX_INCREMENT || operator == UnaryExpr.Operator.PREFIX_DECREMENT
+                || operator == UnaryExpr.Operator.POSTFIX_INCREMENT || operator == UnaryExpr.Operator.POSTFIX_DECREMENT;
+        }
+
+        private static boolean isBreakTarget(Node node) {
+            return node instanceof ForStmt || node instanceof ForEachStmt || node instanceof WhileStmt
+                || node instanceof DoStmt || node instanceof SwitchStmt || node instanceof SwitchExpr;
+        }
+
+        private static boolean isFunctionBoundary(Node node) {
+            return node instanceof CallableDeclaration || node instanceof LambdaExpr
+                || node instanceof InitializerDeclaration || node instanceof TypeDeclaration;
+        }
+
+        private static Node enclosingFunction(Node node) {
+            Node current = node.getParentNode().orElse(null);
+            while (current != null && !isFunctionBoundary(current)) {
+                current = current.getParentNode().orElse(null);
+            }
+            return current;
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (enforcing) {
+            return String.format("Type filter: %d of %d candidates rejected before javac, %d accepted ones failed to compile",
+                rejected.get(), checked.get(), acceptedFailing.get());
+        }
+        long flagged = rejected.get();
+        long failing = rejectedFailing.get() + acceptedFailing.get();
+        return String.format("Type filter (audit): %d of %d candidates flagged, precision %.1f%%, recall %.1f%% against javac"
+                + " (%d flagged ones compiled, %d compile failures missed)",
+            flagged, checked.get(),
+            flagged == 0 ? 100.0 : 100.0 * rejectedFailing.get() / flagged,
+            failing == 0 ? 100.0 : 100.0 * rejectedFailing.get() / failing,
+            flagged - rejectedFailing.get(), acceptedFailing.get());
+    }
+}
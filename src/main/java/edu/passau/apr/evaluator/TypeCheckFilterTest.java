@@ -0,0 +1,150 @@
+package edu.passau.apr.evaluator;
+
+import com.github.javaparser.StaticJavaParser;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class TypeCheckFilterTest {
+
+    String source = StaticJavaParser.parse("""
+        import java.util.*;
+
+        public class Shop {
+            private int count;
+            private final List<String> items = new ArrayList<>();
+
+            int total(int[] prices) {
+                int sum = 0;
+                for (int price : prices) {
+                    sum += price;
+                }
+                return sum;
+            }
+
+            String label(String name, boolean upper) {
+                String text = name.trim();
+                if (upper) {
+                    text = text.toUpperCase();
+                }
+                return text;
+            }
+
+            void add(String item) {
+                items.add(item);
+                count++;
+            }
+
+            boolean isEmpty() {
+                return count == 0;
+            }
+        }
+        """).toString();
+
+    // Each case replaces the first occurrence of a statement of the original program.
+    record Case(String original, String replacement) {}
+
+    List<Case> compilable = List.of(
+        new Case("return sum;", "return sum + count;"),
+        new Case("sum += price;", "sum += price * 2L;"),
+        new Case("sum += price;", "sum += 1.5;"),
+        new Case("return sum;", "return (int) (sum * 1.5);"),
+        new Case("return text;", "return text + upper;"),
+        new Case("return text;", "return upper ? text : name;"),
+        new Case("return text;", "return text + 'x' + 1 + null;"),
+        new Case("text = text.toUpperCase();", "text = null;"),
+        new Case("count++;", "count += 'a';"),
+        new Case("count++;", "count = 'a' + 1;"),
+        new Case("count++;", "char c = 'a'; c += 1; count = c;"),
+        new Case("count++;", "items.forEach(i -> count++);"),
+        new Case("count++;", "Runnable r = () -> { return; }; r.run();"),
+        new Case("return count == 0;", "return items.isEmpty();"),
+        new Case("return count == 0;", "return count == 0L;"),
+        new Case("return count == 0;", "return count == 'a' || items.size() > 1.0;"),
+        new Case("return count == 0;", "Integer boxed = count; return boxed == 0;"),
+        new Case("return count == 0;", "Object o = count; return o instanceof Integer i && i == 0;"),
+        new Case("items.add(item);", "items.add(item + count);"),
+        new Case("items.add(item);", "Object o = item; items.add((String) o);"),
+        new Case("String text = name.trim();", "var text = name.trim();"),
+        new Case("String text = name.trim();", "String text = name.trim(); { String other = text; text = other; }"),
+        new Case("return sum;", "while (true) { if (sum > 0) { break; } sum++; } return sum;"),
+        new Case("return sum;", "outer: for (int i = 0; ; i++) { for (int j = 0; j < i; j++) { if (j > sum) { break outer; } } } return sum;"),
+        new Case("return sum;", "do { sum--; } while (sum > 10); return sum;"),
+        new Case("return sum;", "try { return Integer.parseInt(\"\" + sum); } catch (NumberFormatException e) { return 0; }"),
+        new Case("return sum;", "throw new IllegalStateException();"),
+        new Case("return sum;", "switch (sum) { case 0: return 1; default: return sum; }"),
+        new Case("return sum;", "return switch (sum) { case 0 -> 1; case 1 -> { yield 2; } default -> sum; };"),
+        new Case("return sum;", "synchronized (this) { return sum; }"),
+        new Case("return sum;", "if (sum > 0) { return sum; } else { return -sum; }"),
+        new Case("return sum;", "long wide = sum; return (int) wide;"),
+        new Case("return sum;", "int[] copy = prices.clone(); return copy.length + sum;"),
+        new Case("return sum;", "return prices.length > 0 ? prices[0] : sum;"),
+        new Case("return text;", "StringBuilder builder = new StringBuilder(text); return builder.reverse().toString();"),
+        new Case("return text;", "return String.valueOf(text.length());"),
+        new Case("int sum = 0;", "int sum = 0; final int limit = 3; sum = limit;"),
+        new Case("if (upper) {", "if (upper && !text.isEmpty()) {")
+    );
+
+    List<Case> notCompilable = List.of(
+        new Case("return sum;", "return sum; sum++;"),
+        new Case("return sum;", ""),
+        new Case("return sum;", "return sum"),
+        new Case("return sum;", "return price;"),
+        new Case("return sum;", "return sum.length;"),
+        new Case("int sum = 0;", "int sum = 0; int sum = 1;"),
+        new Case("text = text.toUpperCase();", "continue;"),
+        new Case("text = text.toUpperCase();", "break;"),
+        new Case("String text = name.trim();", "String text = text.trim();"),
+        new Case("count++;", "count + 1;"),
+        new Case("return count == 0;", "return count;"),
+        new Case("return text;", "return 1;"),
+        new Case("if (upper) {", "if (count) {"),
+        new Case("items.add(item);", "add(item).length();"),
+        new Case("return sum;", "while (true) { sum++; } return sum;"),
+        new Case("sum += price;", "switch (price) { case 0 -> 1; default -> sum++; }")
+    );
+
+    static boolean javacCompiles(String source) throws Exception {
+        CompilerSession session = CompilerSession.open(List.of());
+        try {
+            return session.inMemoryTask("Shop", source).call();
+        } finally {
+            session.close();
+        }
+    }
+
+    String apply(Case c) {
+        assertTrue(source.contains(c.original()), c.original());
+        return source.replaceFirst(java.util.regex.Pattern.quote(c.original()),
+            java.util.regex.Matcher.quoteReplacement(c.replacement()));
+    }
+
+    @Test
+    void baseProgramCompiles() throws Exception {
+        assertTrue(javacCompiles(source));
+        assertNull(new TypeCheckFilter(source, true).problem(source));
+    }
+
+    @Test
+    void neverRejectsCompilableCandidates() throws Exception {
+        TypeCheckFilter filter = new TypeCheckFilter(source, true);
+        for (Case c : compilable) {
+            String candidate = apply(c);
+            assertTrue(javacCompiles(candidate), "javac must accept " + c.replacement());
+            assertNull(filter.problem(candidate), c.replacement());
+        }
+    }
+
+    @Test
+    void rejectsCertainCompileErrors() throws Exception {
+        TypeCheckFilter filter = new TypeCheckFilter(source, true);
+        for (Case c : notCompilable) {
+            String candidate = apply(c);
+            assertFalse(javacCompiles(candidate), "javac must reject " + c.replacement());
+            assertNotNull(filter.problem(candidate), c.replacement());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package edu.passau.apr.evaluator;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks with a deadline on a shared pool of reusable daemon threads. A single timer thread
+ * cancels (and interrupts) tasks that outlive their deadline, so callers simply wait for the result
+ * and no thread is created or torn down per task once the pool is warm. Tasks write to the
+ * caller's {@link OutputRouter} sink.
+ *
+ * <p>The pool is not size-limited: a task that ignores interruption keeps its thread, and the next
+ * task must not queue behind it. Such tasks are reported by {@link #strandedTasks()}.
+ */
+final class Watchdog implements AutoCloseable {
+    private final ThreadPoolExecutor pool;
+    private final ScheduledThreadPoolExecutor timer;
+    private final List<AtomicBoolean> timedOutTasks = new CopyOnWriteArrayList<>();
+
+    Watchdog(String namePrefix) {
+        this.pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            runnable -> newDaemonThread(runnable, namePrefix + "-task-"));
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> newDaemonThread(runnable, namePrefix + "-watchdog-"));
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Runs {@code task} on a pooled thread and waits for it. When the deadline passes first, the
+     * task is interrupted and {@link TimeoutException} is thrown. If the calling thread is
+     * interrupted while waiting, the task is cancelled as well.
+     */
+    <T> T call(Callable<T> task, long timeout, TimeUnit unit)
+            throws TimeoutException, ExecutionException, InterruptedException {
+        AtomicBoolean finished = new AtomicBoolean();
+        OutputStream sink = OutputRouter.currentSink();
+        Future<T> future = pool.submit(() -> {
+            try {
+                return OutputRouter.withSink(sink, task);
+            } finally {
+                finished.set(true);
+            }
+        });
+        ScheduledFuture<?> deadline = timer.schedule(() -> future.cancel(true), timeout, unit);
+        try {
+            return future.get();
+        } catch (CancellationException e) {
+            if (!finished.get()) {
+                timedOutTasks.add(finished);
+            }
+            throw new TimeoutException();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    /**
+     * Returns how many timed-out tasks are still occupying a thread, i.e. ignored their interrupt.
+     */
+    int strandedTasks() {
+        timedOutTasks.removeIf(AtomicBoolean::get);
+        return timedOutTasks.size();
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private static Thread newDaemonThread(Runnable runnable, String namePrefix) {
+        Thread thread = new Thread(runnable, namePrefix + System.nanoTime());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,110 @@
+package edu.passau.apr.localization;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import edu.passau.apr.config.Config;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Spectrum-based fault localization: scores every statement of the buggy program by how strongly
+ * executing it correlates with failing tests, and reports the scores per source line in the same
+ * form as {@code fault-localization.json}.
+ *
+ * <p>For a statement executed by {@code ef} of the {@code F} failing tests and {@code ep} of the
+ * {@code P} passing tests, Ochiai is {@code ef / sqrt(F * (ef + ep))} and Tarantula is
+ * {@code (ef / F) / (ef / F + ep / P)}. Both lie in {@code [0, 1]}, so they can be used directly
+ * as mutation probabilities. A line takes the highest score of the statements starting on it;
+ * blocks are skipped, as they only group other statements.</p>
+ */
+public final class SpectrumFaultLocalizer {
+
+    private final String formula;
+    private final int topK;
+
+    /**
+     * @param formula {@link Config#FAULT_LOCALIZATION_OCHIAI} or {@link Config#FAULT_LOCALIZATION_TARANTULA}
+     * @param topK    how many lines keep a non-zero score, highest first; 0 = all
+     */
+    public SpectrumFaultLocalizer(String formula, int topK) {
+        this.formula = formula;
+        this.topK = topK;
+    }
+
+    /**
+     * Computes per-line suspiciousness of {@code buggySource}.
+     *
+     * @param statementCoverage per test, the statements it executed, bit {@code i} standing for the
+     *                          {@code i}-th element of {@code findAll(Statement.class)}
+     * @param failingTests      tests that fail on the buggy program
+     * @return line number to suspiciousness, with {@code 0.0} for statements no failing test reaches
+     */
+    public Map<Integer, Double> localize(String buggySource, Map<String, BitSet> statementCoverage,
+                                         Set<String> failingTests) {
+        List<Statement> statements = StaticJavaParser.parse(buggySource).findAll(Statement.class);
+        int failed = 0;
+        int passed = 0;
+        int[] executedByFailing = new int[statements.size()];
+        int[] executedByPassing = new int[statements.size()];
+        for (Map.Entry<String, BitSet> entry : statementCoverage.entrySet()) {
+            boolean failing = failingTests.contains(entry.getKey());
+            int[] counts = failing ? executedByFailing : executedByPassing;
+            if (failing) {
+                failed++;
+            } else {
+                passed++;
+            }
+            BitSet executed = entry.getValue();
+            for (int i = executed.nextSetBit(0); i >= 0 && i < statements.size(); i = executed.nextSetBit(i + 1)) {
+                counts[i]++;
+            }
+        }
+
+        Map<Integer, Double> weights = new HashMap<>();
+        for (int i = 0; i < statements.size(); i++) {
+            Statement statement = statements.get(i);
+            if (statement instanceof BlockStmt || statement.getBegin().isEmpty()) {
+                continue;
+            }
+            double score = score(executedByFailing[i], executedByPassing[i], failed, passed);
+            weights.merge(statement.getBegin().get().line, score, Math::max);
+        }
+        if (topK > 0) {
+            keepTop(weights);
+        }
+        return weights;
+    }
+
+    private double score(int ef, int ep, int failed, int passed) {
+        if (ef == 0 || failed == 0) {
+            return 0.0;
+        }
+        if (Config.FAULT_LOCALIZATION_TARANTULA.equals(formula)) {
+            double failRatio = (double) ef / failed;
+            double passRatio = passed > 0 ? (double) ep / passed : 0.0;
+            return failRatio / (failRatio + passRatio);
+        }
+        return ef / Math.sqrt((double) failed * (ef + ep));
+    }
+
+    /**
+     * Zeroes every line outside the {@code topK} highest-scoring ones. Ties are broken by line
+     * number so the targeted set is the same on every run.
+     */
+    private void keepTop(Map<Integer, Double> weights) {
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(weights.entrySet());
+        ranked.removeIf(entry -> entry.getValue() <= 0.0);
+        ranked.sort(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder())
+            .thenComparing(Map.Entry.comparingByKey()));
+        for (int i = topK; i < ranked.size(); i++) {
+            weights.put(ranked.get(i).getKey(), 0.0);
+        }
+    }
+}
@@ -5,12 +5,33 @@ package edu.passau.apr.model;
  * Fitness is calculated based on passing and failing tests.
  */
 public record FitnessResult(int passingTests, int failingTests, int totalTests, double fitness, boolean compiles,
-                            boolean allTestsPass) {
+                            boolean allTestsPass, Precision precision) {
+
+    /**
+     * How the fitness value was obtained.
+     */
+    public enum Precision {
+        /** Every test was run. */
+        EXACT,
+        /** Evaluation stopped early; fitness only counts the tests that ran and is a lower bound. */
+        BOUNDED,
+        /** Only a sample of the positive tests ran; their share of the fitness is extrapolated. */
+        SAMPLED
+    }
+
+    public FitnessResult(int passingTests, int failingTests, int totalTests, double fitness, boolean compiles,
+                         boolean allTestsPass) {
+        this(passingTests, failingTests, totalTests, fitness, compiles, allTestsPass, Precision.EXACT);
+    }
+
+    public boolean isExact() {
+        return precision == Precision.EXACT;
+    }
 
     @Override
     public String toString() {
-        return String.format("Fitness: %.2f (Passing: %d/%d, Failing: %d, Compiles: %s, AllPass: %s)",
-                fitness, passingTests, totalTests, failingTests, compiles, allTestsPass);
+        return String.format("Fitness: %.2f (Passing: %d/%d, Failing: %d, Compiles: %s, AllPass: %s%s)",
+                fitness, passingTests, totalTests, failingTests, compiles, allTestsPass,
+                isExact() ? "" : ", " + precision);
     }
 }
-
@@ -34,10 +34,24 @@ public class Patch {
     private static final Range INVALID_RANGE = new Range(new Position(-1, -1), new Position(-1, -1));
     private static final int MAX_EDITS_PER_PATCH = 3;
     private static final double UNKNOWN_SUSPICIOUSNESS = 0.0;
+    // Fresh draws for a statement whose random edit the veto turned down.
+    private static final int MAX_EDIT_RESAMPLES = 3;
+
+    /**
+     * Turns down edits known to be useless before they are applied.
+     */
+    public interface EditVeto {
+        /**
+         * @param appliedEdits the patch's edits so far
+         * @param edit the next edit, in the same coordinates as {@code appliedEdits}
+         */
+        boolean rejects(List<Edit> appliedEdits, Edit edit);
+    }
 
     private final CompilationUnit compilationUnit;
     private final Map<Integer, Double> suspiciousness;
     private final List<Edit> edits = new ArrayList<>();
+    private EditVeto editVeto;
 
     public Patch(CompilationUnit cu, Map<Integer, Double> nodeWeights) {
         this.compilationUnit = cu;
@@ -86,6 +100,9 @@ public class Patch {
             }
 
             Edit edit = createRandomEdit(currentIndex, random);
+            for (int attempt = 0; edit != null && editVeto != null && editVeto.rejects(edits, edit); attempt++) {
+                edit = attempt < MAX_EDIT_RESAMPLES ? createRandomEdit(currentIndex, random) : null;
+            }
             if (edit != null) {
                 applyEdit(edit);
             }
@@ -131,9 +148,17 @@ public class Patch {
     public Patch copy() {
         Patch patchCopy = new Patch(compilationUnit.clone(), suspiciousness);
         patchCopy.edits.addAll(edits);
+        patchCopy.editVeto = editVeto;
         return patchCopy;
     }
 
+    /**
+     * Sets the veto random mutations consult; copies share it.
+     */
+    public void setEditVeto(EditVeto editVeto) {
+        this.editVeto = editVeto;
+    }
+
     private double mutationProbabilityWeight(Statement statement) {
         // Keep GenProg semantics: mutate statement I_j with probability W(I_j).
         return Math.max(0.0, Math.min(1.0, getStatementSuspiciousness(statement)));
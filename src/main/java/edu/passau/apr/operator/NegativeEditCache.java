@@ -0,0 +1,86 @@
+package edu.passau.apr.operator;
+
+import edu.passau.apr.model.Edit;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Remembers single edits that did not compile, in source coordinates, so the generator stops
+ * proposing them. An edit that broke compilation on its own breaks it again in any patch whose
+ * other edits leave the scopes it touches alone: the callables (or other member declarations)
+ * around its target and donor statements. Once another edit of the patch has changed one of
+ * those scopes, the earlier verdict no longer applies and the edit is allowed.
+ */
+public final class NegativeEditCache {
+
+    private final Set<Edit> knownBad = new HashSet<>();
+    // Scope of each source statement, or -1 for statements outside any member declaration.
+    private final int[] statementScopes;
+    private int rejectedMutations;
+    private int skippedSeeds;
+    private int droppedCrossoverEdits;
+
+    NegativeEditCache(int[] statementScopes) {
+        this.statementScopes = statementScopes;
+    }
+
+    /**
+     * Records the only edit of a patch that failed to compile.
+     */
+    void record(Edit sourceEdit) {
+        knownBad.add(sourceEdit);
+    }
+
+    /**
+     * Whether {@code sourceEdit} is known not to compile after {@code earlierEdits}, both in
+     * source coordinates.
+     */
+    boolean rejects(List<Edit> earlierEdits, Edit sourceEdit) {
+        if (!knownBad.contains(sourceEdit)) {
+            return false;
+        }
+        Set<Integer> scopes = scopesOf(sourceEdit);
+        for (Edit earlier : earlierEdits) {
+            for (Integer scope : scopesOf(earlier)) {
+                if (scopes.contains(scope)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private Set<Integer> scopesOf(Edit edit) {
+        Set<Integer> scopes = new HashSet<>();
+        scopes.add(scopeOf(edit.statementIndex()));
+        if (edit.donorStatementIndex() != null) {
+            scopes.add(scopeOf(edit.donorStatementIndex()));
+        }
+        return scopes;
+    }
+
+    private int scopeOf(int sourceIndex) {
+        return sourceIndex >= 0 && sourceIndex < statementScopes.length ? statementScopes[sourceIndex] : -1;
+    }
+
+    void countRejectedMutation() {
+        rejectedMutations++;
+    }
+
+    void countSkippedSeed() {
+        skippedSeeds++;
+    }
+
+    void countDroppedCrossoverEdit() {
+        droppedCrossoverEdits++;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Negative edit cache: %d edits known not to compile; %d mutations resampled,"
+                + " %d guided seeds skipped, %d crossover edits dropped",
+            knownBad.size(), rejectedMutations, skippedSeeds, droppedCrossoverEdits);
+    }
+}
@@ -2,7 +2,10 @@ package edu.passau.apr.operator;
 
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
 import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
 import com.github.javaparser.ast.expr.BinaryExpr;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.stmt.Statement;
@@ -14,6 +17,7 @@ import edu.passau.apr.util.Pair;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -48,24 +52,86 @@ public class PatchGenerator {
     private final double mutationWeight;
     private final Map<Integer, Double> weights;
     private final int sourceStatementCount;
+    private final NegativeEditCache negativeEdits;
 
     public PatchGenerator(String source, Map<Integer, Double> weights, double mutationWeight, Random random) {
+        this(source, weights, mutationWeight, random, false);
+    }
+
+    /**
+     * @param negativeEditCache whether to stop proposing single edits that are known not to compile
+     */
+    public PatchGenerator(String source, Map<Integer, Double> weights, double mutationWeight, Random random,
+                          boolean negativeEditCache) {
         this.random = random;
         this.source = source;
         this.mutationWeight = mutationWeight;
         this.weights = weights;
         this.sourceStatementCount = countMutableStatements(source);
+        this.negativeEdits = negativeEditCache ? new NegativeEditCache(statementScopes()) : null;
     }
 
     /**
      * Generates a random initial patch.
      */
     public Patch generateRandomPatch() {
-        Patch patch = new Patch(source, weights);
+        Patch patch = newPatch();
         patch.doMutations(mutationWeight, random);
         return patch;
     }
 
+    /**
+     * Returns the cache of edits known not to compile, or null when it is disabled.
+     */
+    public NegativeEditCache getNegativeEditCache() {
+        return negativeEdits;
+    }
+
+    /**
+     * Learns from a patch that failed to compile. Only single-edit patches are remembered: with
+     * more edits it is unknown which one broke compilation.
+     */
+    public void recordCompileFailure(Patch patch) {
+        List<Edit> edits = patch.getEdits();
+        if (negativeEdits != null && edits.size() == 1) {
+            // With a single edit, its positions are source positions.
+            negativeEdits.record(edits.get(0));
+        }
+    }
+
+    private Patch newPatch() {
+        Patch patch = new Patch(source, weights);
+        if (negativeEdits != null) {
+            patch.setEditVeto((appliedEdits, edit) -> {
+                boolean rejected = isKnownBad(appliedEdits, edit);
+                if (rejected) {
+                    negativeEdits.countRejectedMutation();
+                }
+                return rejected;
+            });
+        }
+        return patch;
+    }
+
+    /**
+     * Whether {@code edit}, applied after {@code appliedEdits} (both in current positions), is an
+     * edit known not to compile.
+     */
+    boolean isKnownBad(List<Edit> appliedEdits, Edit edit) {
+        if (negativeEdits == null) {
+            return false;
+        }
+        List<Edit> earlier = normalizeScriptToSourceCoordinates(appliedEdits);
+        List<Edit> script = new ArrayList<>(appliedEdits);
+        script.add(edit);
+        List<Edit> normalized = normalizeScriptToSourceCoordinates(script);
+        // An edit on inserted code has no source position and was never seen alone.
+        if (normalized.size() == earlier.size()) {
+            return false;
+        }
+        return negativeEdits.rejects(earlier, normalized.get(normalized.size() - 1));
+    }
+
     /**
      * Creates deterministic, generic seed patches.
      * Seeds are assembled from suspicious locations only, without benchmark-specific patterns.
@@ -138,7 +204,7 @@ public class PatchGenerator {
             if (guided.size() >= singleQuota || guided.size() >= maxCount) {
                 break;
             }
-            Patch candidate = new Patch(source, weights);
+            Patch candidate = newPatch();
             if (candidate.applyEdit(edit) && remember(candidate, seenPrograms)) {
                 guided.add(candidate);
             }
@@ -358,7 +424,11 @@ public class PatchGenerator {
             return;
         }
 
-        Patch candidate = new Patch(source, weights);
+        if (isKnownBad(List.of(first), second)) {
+            negativeEdits.countSkippedSeed();
+            return;
+        }
+        Patch candidate = newPatch();
         if (!candidate.applyEdit(first)) {
             return;
         }
@@ -381,6 +451,10 @@ public class PatchGenerator {
         if (!seenEdits.add(key)) {
             return;
         }
+        if (isKnownBad(List.of(), edit)) {
+            negativeEdits.countSkippedSeed();
+            return;
+        }
 
         Patch candidate = new Patch(source, weights);
         if (!candidate.applyEdit(edit)) {
@@ -812,14 +886,19 @@ public class PatchGenerator {
     }
 
     private Patch replaySourceIndexedScript(List<Edit> sourceIndexedScript) {
-        Patch patch = new Patch(source, weights);
+        Patch patch = newPatch();
         List<Integer> positionToSource = new ArrayList<>(sourceStatementCount);
         for (int i = 0; i < sourceStatementCount; i++) {
             positionToSource.add(i);
         }
 
         int syntheticSeed = sourceStatementCount;
+        List<Edit> replayed = new ArrayList<>();
         for (Edit sourceIndexedEdit : sourceIndexedScript) {
+            if (negativeEdits != null && negativeEdits.rejects(replayed, sourceIndexedEdit)) {
+                negativeEdits.countDroppedCrossoverEdit();
+                continue;
+            }
             Edit rebasedEdit = rebaseToCurrentPositions(sourceIndexedEdit, positionToSource);
             if (rebasedEdit == null) {
                 continue;
@@ -827,6 +906,7 @@ public class PatchGenerator {
             if (!patch.applyEdit(rebasedEdit)) {
                 continue;
             }
+            replayed.add(sourceIndexedEdit);
 
             switch (rebasedEdit.type()) {
                 case DELETE -> removeAt(positionToSource, rebasedEdit.statementIndex());
@@ -915,6 +995,27 @@ public class PatchGenerator {
         }
     }
 
+    /**
+     * Numbers the outermost member declaration (method, constructor, initializer or field) around
+     * each mutable source statement. Edits in different scopes cannot change whether the other
+     * compiles.
+     */
+    private int[] statementScopes() {
+        List<Statement> statements = mutableStatements();
+        Map<Node, Integer> scopeIds = new IdentityHashMap<>();
+        int[] scopes = new int[statements.size()];
+        for (int i = 0; i < statements.size(); i++) {
+            Node scope = null;
+            for (Node node = statements.get(i); node != null; node = node.getParentNode().orElse(null)) {
+                if (node instanceof BodyDeclaration<?> && !(node instanceof TypeDeclaration<?>)) {
+                    scope = node;
+                }
+            }
+            scopes[i] = scope == null ? -1 : scopeIds.computeIfAbsent(scope, key -> scopeIds.size());
+        }
+        return scopes;
+    }
+
     private double exactStatementSuspiciousness(Statement statement) {
         if (weights == null || weights.isEmpty()) {
             return 0.0;
@@ -1,5 +1,8 @@
 package edu.passau.apr.operator;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -69,4 +72,138 @@ class PatchGeneratorTest {
 
 
     }
+
+    // Mutable statements 0-2 are in a() on lines 3-5, 3-5 in b() on lines 8-10.
+    Map<Integer, Double> lineWeights = Map.of(3, 1.0, 4, 1.0, 5, 1.0, 8, 1.0, 9, 1.0, 10, 1.0);
+    String twoMethods = """
+        public class Counter {
+            int a(int x) {
+                int y = x + 1;
+                y = y * 2;
+                return y;
+            }
+            int b(int x) {
+                int z = x - 1;
+                z = z + 3;
+                return z;
+            }
+        }
+        """;
+
+    PatchGenerator generatorWithKnownBad(Random random, Edit... knownBad) {
+        PatchGenerator generator = new PatchGenerator(twoMethods, lineWeights, 1.0, random, true);
+        for (Edit edit : knownBad) {
+            Patch failing = new Patch(twoMethods, lineWeights);
+            assertTrue(failing.applyEdit(edit));
+            generator.recordCompileFailure(failing);
+        }
+        return generator;
+    }
+
+    @Test
+    void vetoResamplesRejectedEdits() {
+        List<Edit> asked = new ArrayList<>();
+        int applied = 0;
+        for (int patchSeed = 0; patchSeed < 20; patchSeed++) {
+            Patch patch = new Patch(twoMethods, lineWeights);
+            patch.setEditVeto((earlier, edit) -> {
+                asked.add(edit);
+                return edit.type() == Edit.Type.DELETE;
+            });
+            patch.doMutations(1.0, new Random(patchSeed));
+            for (Edit edit : patch.getEdits()) {
+                assertNotEquals(Edit.Type.DELETE, edit.type());
+            }
+            applied += patch.getEdits().size();
+        }
+        assertTrue(applied > 0);
+        assertTrue(asked.size() > applied, "rejected edits are redrawn");
+
+        // A statement whose every draw is rejected is left alone after the last redraw.
+        asked.clear();
+        Patch untouched = new Patch(twoMethods, lineWeights);
+        untouched.setEditVeto((earlier, edit) -> asked.add(edit));
+        untouched.doMutations(1.0, new Random(seed));
+        assertEquals(List.of(), untouched.getEdits());
+        assertTrue(asked.size() >= 4, "a statement is drawn once and redrawn three times");
+    }
+
+    @Test
+    void generatedPatchesAvoidKnownBadEdits() {
+        // Every statement gets an edit, so the first one nearly always targets statement 0.
+        Edit bad = new Edit(Edit.Type.DELETE, 0, null);
+        PatchGenerator generator = generatorWithKnownBad(new Random(seed), bad);
+        for (int i = 0; i < 200; i++) {
+            List<Edit> edits = generator.generateRandomPatch().getEdits();
+            // The first edit is in source coordinates and has no earlier edit to void the verdict.
+            assertNotEquals(bad, edits.isEmpty() ? null : edits.get(0));
+        }
+        assertFalse(generator.getNegativeEditCache().toString().contains(" 0 mutations resampled"));
+    }
+
+    @Test
+    void earlierEditInSameScopeVoidsVerdict() {
+        Edit bad = new Edit(Edit.Type.DELETE, 2, null);
+        PatchGenerator generator = generatorWithKnownBad(generateConstRandomMock(0), bad);
+        assertTrue(generator.isKnownBad(List.of(), bad));
+        // An edit in b() leaves a() as it was when the edit failed.
+        assertTrue(generator.isKnownBad(List.of(new Edit(Edit.Type.DELETE, 4, null)), bad));
+        // An edit in a() may have made it compile.
+        assertFalse(generator.isKnownBad(List.of(new Edit(Edit.Type.NEGATE_EXPRESSION, 0, null, 0, null)), bad));
+        // So may an edit whose donor lies in a().
+        assertFalse(generator.isKnownBad(List.of(new Edit(Edit.Type.INSERT, 4, 0)), bad));
+
+        // A known-bad edit that spans both methods is voided by an edit in either.
+        Edit spanning = new Edit(Edit.Type.INSERT, 4, 1);
+        generator = generatorWithKnownBad(generateConstRandomMock(0), spanning);
+        assertTrue(generator.isKnownBad(List.of(), spanning));
+        assertFalse(generator.isKnownBad(List.of(new Edit(Edit.Type.DELETE, 0, null)), spanning));
+        assertFalse(generator.isKnownBad(List.of(new Edit(Edit.Type.DELETE, 3, null)), spanning));
+    }
+
+    @Test
+    void knownBadEditsAreMappedToSourceCoordinates() {
+        // z = z + 3 is source statement 4.
+        PatchGenerator generator = generatorWithKnownBad(generateConstRandomMock(0), new Edit(Edit.Type.DELETE, 4, null));
+
+        // After deleting a statement of a(), it sits at position 3.
+        List<Edit> afterDelete = List.of(new Edit(Edit.Type.DELETE, 0, null));
+        assertTrue(generator.isKnownBad(afterDelete, new Edit(Edit.Type.DELETE, 3, null)));
+        assertFalse(generator.isKnownBad(afterDelete, new Edit(Edit.Type.DELETE, 4, null)));
+
+        // After inserting a statement before it, it sits at position 5; the insert is in b(), though.
+        List<Edit> afterInsert = List.of(new Edit(Edit.Type.INSERT, 3, 5));
+        assertFalse(generator.isKnownBad(afterInsert, new Edit(Edit.Type.DELETE, 5, null)));
+        List<Edit> afterInsertInA = List.of(new Edit(Edit.Type.INSERT, 1, 2));
+        assertTrue(generator.isKnownBad(afterInsertInA, new Edit(Edit.Type.DELETE, 5, null)));
+        assertFalse(generator.isKnownBad(afterInsertInA, new Edit(Edit.Type.DELETE, 4, null)));
+
+        // Edits on inserted statements have no source position and are never known bad.
+        assertFalse(generator.isKnownBad(afterInsertInA, new Edit(Edit.Type.DELETE, 1, null)));
+    }
+
+    @Test
+    void crossoverDropsKnownBadEdits() {
+        Edit bad = new Edit(Edit.Type.DELETE, 2, null);
+        // Cut after source statement 3: the first child takes p's edits up to it and q's after it.
+        PatchGenerator generator = generatorWithKnownBad(generateConstRandomMock(3), bad);
+        Patch p = new Patch(twoMethods, lineWeights);
+        assertTrue(p.applyEdit(bad));
+        Patch q = new Patch(twoMethods, lineWeights);
+        assertTrue(q.applyEdit(new Edit(Edit.Type.DELETE, 4, null)));
+
+        var offspring = generator.crossover(p, q);
+        assertEquals(List.of(new Edit(Edit.Type.DELETE, 4, null)), offspring.first().getEdits());
+        assertEquals(List.of(), offspring.second().getEdits());
+        assertTrue(generator.getNegativeEditCache().toString().contains(" 1 crossover edits dropped"));
+
+        // Replayed after another edit of a(), the same edit is kept.
+        Patch pWithEarlier = new Patch(twoMethods, lineWeights);
+        assertTrue(pWithEarlier.applyEdit(new Edit(Edit.Type.DELETE, 0, null)));
+        assertTrue(pWithEarlier.applyEdit(new Edit(Edit.Type.DELETE, 1, null)));
+        offspring = generator.crossover(pWithEarlier, q);
+        assertEquals(List.of(new Edit(Edit.Type.DELETE, 0, null), new Edit(Edit.Type.DELETE, 1, null),
+            new Edit(Edit.Type.DELETE, 2, null)), offspring.first().getEdits());
+        assertTrue(generator.getNegativeEditCache().toString().contains(" 1 crossover edits dropped"));
+    }
 }
@@ -0,0 +1,46 @@
+package edu.passau.apr.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Strong content hashes for candidate programs.
+ */
+public final class ProgramHash {
+    private ProgramHash() {
+    }
+
+    /**
+     * Returns the SHA-256 of the normalized program text as a hex string.
+     * Programs that differ only in line endings, trailing whitespace or blank lines hash equally.
+     */
+    public static String of(String program) {
+        return sha256Hex(normalize(program));
+    }
+
+    public static String sha256Hex(String text) {
+        return HexFormat.of().formatHex(sha256(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String normalize(String program) {
+        StringBuilder normalized = new StringBuilder(program.length());
+        for (String line : program.split("\\R")) {
+            String trimmed = line.stripTrailing();
+            if (!trimmed.isEmpty()) {
+                normalized.append(trimmed).append('\n');
+            }
+        }
+        return normalized.toString();
+    }
+}
@@ -4,11 +4,18 @@ set -u
 set -o pipefail
 
 # Quick benchmark sweep for the APR tool.
-# Usage: ./test_quick.sh [seed] [maxGenerations] [timeLimitSec]
+# Usage: ./test_quick.sh [seed] [maxGenerations] [timeLimitSec] [fitnessStore]
+# A fitness store path lets repeated sweeps reuse fitness results of earlier runs.
 
 SEED="${1:-42}"
 MAX_GENERATIONS="${2:-80}"
 TIME_LIMIT_SEC="${3:-120}"
+FITNESS_STORE="${4:-}"
+
+EXTRA_ARGS=""
+if [[ -n "$FITNESS_STORE" ]]; then
+  EXTRA_ARGS=" --fitnessStore $FITNESS_STORE"
+fi
 
 BENCHMARKS=(
   "B01_OffByOne"
@@ -37,7 +44,7 @@ for bench in "${BENCHMARKS[@]}"; do
   tmp_log="$(mktemp)"
 
   ./gradlew run \
-    --args="--benchmark benchmarks/$bench --seed $SEED --maxGenerations $MAX_GENERATIONS --timeLimitSec $TIME_LIMIT_SEC" \
+    --args="--benchmark benchmarks/$bench --seed $SEED --maxGenerations $MAX_GENERATIONS --timeLimitSec $TIME_LIMIT_SEC$EXTRA_ARGS" \
     --no-daemon >"$tmp_log" 2>&1
   cmd_status=$?
 